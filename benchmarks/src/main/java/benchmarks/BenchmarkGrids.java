@@ -0,0 +1,49 @@
+package benchmarks;
+
+import model.CellState;
+import model.Grid;
+
+import java.util.Random;
+
+/**
+ * Ismételhető véletlen rácsok a mérésekhez.
+ */
+final class BenchmarkGrids {
+
+    private BenchmarkGrids() {
+    }
+
+    /**
+     * Életjáték rács, ahol a cellák density arányban élnek.
+     */
+    static Grid life(int width, int height, double density, long seed) {
+        Random random = new Random(seed);
+        Grid grid = new Grid(width, height, CellState.DEAD);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextDouble() < density) {
+                    grid.setCell(x, y, CellState.ALIVE);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Wireworld rács: a cellák density arányban vezetékek, azok tizede elektronfej, tizede farok.
+     */
+    static Grid wireWorld(int width, int height, double density, long seed) {
+        Random random = new Random(seed);
+        Grid grid = new Grid(width, height, CellState.EMPTY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextDouble() < density) {
+                    double kind = random.nextDouble();
+                    CellState state = kind < 0.1 ? CellState.HEAD : kind < 0.2 ? CellState.TAIL : CellState.CONDUCTOR;
+                    grid.setCell(x, y, state);
+                }
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,31 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * A mérőcsomag belépési pontja. A JMH szokásos parancssori kapcsolóit fogadja
+ * (pl. szűrő reguláris kifejezés, -p size=1024, -f 1), és ezekhez mindig hozzáveszi
+ * a GC profilert (foglalási ráta: gc.alloc.rate.norm byte/művelet), valamint
+ * JSON eredményfájlt ír (alapból jmh-result.json), amit a kiadás előtti
+ * összehasonlítás olvashat.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse("jmh-result.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
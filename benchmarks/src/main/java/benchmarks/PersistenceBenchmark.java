@@ -0,0 +1,68 @@
+package benchmarks;
+
+import model.GameOfLifeRule;
+import model.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.FileManager;
+import persistence.SimulationState;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileManager.saveSimulation és loadSimulation nagy rácsokon, ideiglenes fájlba.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PersistenceBenchmark {
+
+    @Param({ "512", "2048" })
+    public int size;
+
+    private final FileManager fileManager = new FileManager();
+    private final GameOfLifeRule rule = new GameOfLifeRule();
+    private Grid grid;
+    private File saveTarget;
+    private File loadSource;
+
+    @Setup
+    public void setUp() throws IOException {
+        grid = BenchmarkGrids.life(size, size, 0.35, 11);
+        saveTarget = File.createTempFile("bench-save", ".json");
+        loadSource = File.createTempFile("bench-load", ".json");
+        fileManager.saveSimulation(loadSource, grid, rule);
+    }
+
+    @TearDown
+    public void tearDown() {
+        saveTarget.delete();
+        loadSource.delete();
+    }
+
+    @Benchmark
+    public File save() throws IOException {
+        fileManager.saveSimulation(saveTarget, grid, rule);
+        return saveTarget;
+    }
+
+    @Benchmark
+    public SimulationState load() throws IOException {
+        return fileManager.loadSimulation(loadSource);
+    }
+}
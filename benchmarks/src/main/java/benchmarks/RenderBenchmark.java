@@ -0,0 +1,68 @@
+package benchmarks;
+
+import controller.GameController;
+import model.GameOfLifeRule;
+import model.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import view.SimulationPanel;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A SimulationPanel kirajzolása képernyőn kívüli képbe (headless módban is fut).
+ * Egy művelet a teljes panel egy újrarajzolása.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    @Param({ "50", "200" })
+    public int size;
+
+    @Param({ "4", "20" })
+    public int cellSize;
+
+    private SimulationPanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        Grid grid = BenchmarkGrids.life(size, size, 0.35, 3);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        panel = new SimulationPanel(controller);
+        panel.setCellSize(cellSize);
+        int pixels = size * cellSize;
+        panel.setSize(pixels, pixels);
+        image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import model.GameOfLifeRule;
+import model.Grid;
+import model.WireWorldRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cellánkénti calculateNextState egy 256x256-os rács minden celláján.
+ * Egy művelet egy cella kiértékelése.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RuleBenchmark {
+
+    private static final int SIZE = 256;
+
+    private final GameOfLifeRule lifeRule = new GameOfLifeRule();
+    private final WireWorldRule wireRule = new WireWorldRule();
+    private Grid lifeGrid;
+    private Grid wireGrid;
+
+    @Setup
+    public void setUp() {
+        lifeGrid = BenchmarkGrids.life(SIZE, SIZE, 0.35, 7);
+        wireGrid = BenchmarkGrids.wireWorld(SIZE, SIZE, 0.5, 7);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public void gameOfLife(Blackhole blackhole) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                blackhole.consume(lifeRule.calculateNextState(lifeGrid, x, y));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public void wireWorld(Blackhole blackhole) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                blackhole.consume(wireRule.calculateNextState(wireGrid, x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import controller.GameController;
+import model.GameOfLifeRule;
+import model.Grid;
+import model.SimulationRule;
+import model.WireWorldRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameController.nextGeneration több rácsméreten és kitöltöttségen.
+ * Minden iteráció elején a rács újragenerálódik, különben a véletlen
+ * kezdőállapot lecsengene, és a csempekövetés miatt egyre kevesebbet mérnénk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules", "jdk.incubator.vector" })
+public class StepBenchmark {
+
+    @Param({ "LIFE", "WIREWORLD" })
+    public String rule;
+
+    @Param({ "128", "512", "2048" })
+    public int size;
+
+    @Param({ "0.1", "0.35" })
+    public double density;
+
+    private GameController controller;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SimulationRule simulationRule;
+        Grid grid;
+        if ("WIREWORLD".equals(rule)) {
+            simulationRule = new WireWorldRule();
+            grid = BenchmarkGrids.wireWorld(size, size, density, 42);
+        } else {
+            simulationRule = new GameOfLifeRule();
+            grid = BenchmarkGrids.life(size, size, density, 42);
+        }
+        controller = new GameController(grid, simulationRule);
+    }
+
+    @Benchmark
+    public Grid nextGeneration() {
+        controller.nextGeneration();
+        return controller.getGrid();
+    }
+}
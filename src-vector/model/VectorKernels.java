@@ -0,0 +1,185 @@
+package model;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD lépéskernelek a jdk.incubator.vector API-val: egy utasítás annyi cellát
+ * dolgoz fel, ahány byte a processzor vektorregiszterébe fér (AVX2: 32, AVX-512: 64).
+ * Külön forrásmappában van (src-vector), mert csak --add-modules jdk.incubator.vector mellett fordul;
+ * a VectorSupport név szerint tölti be, így az alkalmazás nélküle is fordul és fut (skalár úton).
+ *
+ * A sorok szélein (ahol a szomszéd a rácson kívülre esne) és a vektorhossz alatti
+ * maradékon a szabályok skalár útja fut, így az eredmény cellára pontosan megegyezik vele.
+ */
+final class VectorKernels implements SimdKernel {
+
+    // A vezérlő csempénként hív, ezért a vektor nem lehet szélesebb egy csempénél
+    private static final VectorSpecies<Byte> SPECIES =
+            ByteVector.SPECIES_PREFERRED.length() <= Grid.TILE_SIZE
+                    ? ByteVector.SPECIES_PREFERRED
+                    : VectorSpecies.of(byte.class, VectorShape.forBitSize(Grid.TILE_SIZE * Byte.SIZE));
+    private static final int LANES = SPECIES.length();
+
+    private static final byte DEAD = (byte) CellState.DEAD.ordinal();
+    private static final byte ALIVE = (byte) CellState.ALIVE.ordinal();
+    private static final byte EMPTY = (byte) CellState.EMPTY.ordinal();
+    private static final byte CONDUCTOR = (byte) CellState.CONDUCTOR.ordinal();
+    private static final byte HEAD = (byte) CellState.HEAD.ordinal();
+    private static final byte TAIL = (byte) CellState.TAIL.ordinal();
+
+    // Csupa alapállapotú sor a rács felső és alsó széle fölé/alá (csak olvasott, nőhet)
+    private static volatile byte[] outsideRow = new byte[0];
+
+    VectorKernels() {
+    }
+
+    private static byte[] outsideRow(int width) {
+        byte[] row = outsideRow;
+        if (row.length < width) {
+            row = new byte[width];
+            outsideRow = row;
+        }
+        return row;
+    }
+
+    /**
+     * Életjáték egy téglalapra. A pályán kívüli cellák halottak (a hívó ellenőrzi).
+     */
+    @Override
+    public boolean stepLife(GameOfLifeRule rule, GameOfLifeRule.CompiledRule compiled,
+                            Grid grid, int fromX, int fromY, int toX, int toY) {
+        byte[] cells = grid.currentCells();
+        byte[] next = grid.nextCells();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        byte[] outside = outsideRow(width);
+
+        // A vektoros rész: x-1 >= 0 és x+LANES <= width-1
+        int vectorFrom = Math.max(fromX, 1);
+        int vectorTo = Math.min(toX, width - 1);
+        int vectorEnd = vectorFrom + Math.max(0, (vectorTo - vectorFrom) / LANES * LANES);
+
+        ByteVector one = ByteVector.broadcast(SPECIES, (byte) 1);
+        ByteVector zero = ByteVector.zero(SPECIES);
+        ByteVector aliveValue = ByteVector.broadcast(SPECIES, ALIVE);
+        ByteVector deadValue = ByteVector.broadcast(SPECIES, DEAD);
+
+        boolean changed = false;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * width;
+            byte[] upArray = y > 0 ? cells : outside;
+            int up = y > 0 ? row - width : 0;
+            byte[] downArray = y < height - 1 ? cells : outside;
+            int down = y < height - 1 ? row + width : 0;
+
+            if (vectorFrom > fromX) {
+                changed |= rule.stepScalar(compiled, grid, fromX, y, Math.min(vectorFrom, toX), y + 1);
+            }
+            for (int x = vectorFrom; x < vectorEnd; x += LANES) {
+                ByteVector sum = aliveAsOne(upArray, up + x - 1, one, zero)
+                        .add(aliveAsOne(upArray, up + x, one, zero))
+                        .add(aliveAsOne(upArray, up + x + 1, one, zero))
+                        .add(aliveAsOne(cells, row + x - 1, one, zero))
+                        .add(aliveAsOne(cells, row + x + 1, one, zero))
+                        .add(aliveAsOne(downArray, down + x - 1, one, zero))
+                        .add(aliveAsOne(downArray, down + x, one, zero))
+                        .add(aliveAsOne(downArray, down + x + 1, one, zero));
+
+                ByteVector current = ByteVector.fromArray(SPECIES, cells, row + x);
+                VectorMask<Byte> alive = current.eq(ALIVE);
+                VectorMask<Byte> survive = matches(sum, compiled.survivalMask);
+                VectorMask<Byte> born = matches(sum, compiled.birthMask);
+                VectorMask<Byte> result = alive.and(survive).or(alive.not().and(born));
+
+                ByteVector out = deadValue.blend(aliveValue, result);
+                out.intoArray(next, row + x);
+                changed |= out.compare(VectorOperators.NE, current).anyTrue();
+            }
+            int tailFrom = Math.max(vectorEnd, fromX);
+            if (tailFrom < toX) {
+                changed |= rule.stepScalar(compiled, grid, tailFrom, y, toX, y + 1);
+            }
+        }
+        return changed;
+    }
+
+    private static ByteVector aliveAsOne(byte[] array, int offset, ByteVector one, ByteVector zero) {
+        return zero.blend(one, ByteVector.fromArray(SPECIES, array, offset).eq(ALIVE));
+    }
+
+    /**
+     * Azok a sávok, ahol a szomszédszám a maszk valamelyik bitjének felel meg.
+     */
+    private static VectorMask<Byte> matches(ByteVector sum, int mask) {
+        VectorMask<Byte> result = SPECIES.maskAll(false);
+        for (int n = 0; n <= 8; n++) {
+            if ((mask & (1 << n)) != 0) {
+                result = result.or(sum.eq((byte) n));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wireworld egy téglalapra. A pályán kívüli cellák nem fejek (a hívó ellenőrzi).
+     */
+    @Override
+    public boolean stepWireWorld(WireWorldRule rule, Grid grid, int fromX, int fromY, int toX, int toY) {
+        byte[] cells = grid.currentCells();
+        byte[] next = grid.nextCells();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        byte[] outside = outsideRow(width);
+
+        int vectorFrom = Math.max(fromX, 1);
+        int vectorTo = Math.min(toX, width - 1);
+        int vectorEnd = vectorFrom + Math.max(0, (vectorTo - vectorFrom) / LANES * LANES);
+
+        ByteVector one = ByteVector.broadcast(SPECIES, (byte) 1);
+        ByteVector zero = ByteVector.zero(SPECIES);
+        ByteVector emptyValue = ByteVector.broadcast(SPECIES, EMPTY);
+
+        boolean changed = false;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * width;
+            byte[] upArray = y > 0 ? cells : outside;
+            int up = y > 0 ? row - width : 0;
+            byte[] downArray = y < height - 1 ? cells : outside;
+            int down = y < height - 1 ? row + width : 0;
+
+            if (vectorFrom > fromX) {
+                changed |= rule.stepScalar(grid, fromX, y, Math.min(vectorFrom, toX), y + 1);
+            }
+            for (int x = vectorFrom; x < vectorEnd; x += LANES) {
+                ByteVector heads = headAsOne(cells, row + x - 1, one, zero)
+                        .add(headAsOne(cells, row + x + 1, one, zero))
+                        .add(headAsOne(upArray, up + x, one, zero))
+                        .add(headAsOne(downArray, down + x, one, zero));
+
+                ByteVector current = ByteVector.fromArray(SPECIES, cells, row + x);
+                VectorMask<Byte> conductor = current.eq(CONDUCTOR);
+                VectorMask<Byte> becomesHead = conductor.and(heads.eq((byte) 1).or(heads.eq((byte) 2)));
+
+                ByteVector out = emptyValue
+                        .blend(TAIL, current.eq(HEAD))
+                        .blend(CONDUCTOR, current.eq(TAIL).or(conductor))
+                        .blend(HEAD, becomesHead);
+                out.intoArray(next, row + x);
+                changed |= out.compare(VectorOperators.NE, current).anyTrue();
+            }
+            int tailFrom = Math.max(vectorEnd, fromX);
+            if (tailFrom < toX) {
+                changed |= rule.stepScalar(grid, tailFrom, y, toX, y + 1);
+            }
+        }
+        return changed;
+    }
+
+    private static ByteVector headAsOne(byte[] array, int offset, ByteVector one, ByteVector zero) {
+        return zero.blend(one, ByteVector.fromArray(SPECIES, array, offset).eq(HEAD));
+    }
+}
@@ -0,0 +1,168 @@
+package controller;
+
+import model.BitLifeEngine;
+import model.GameOfLifeRule;
+import model.Grid;
+import model.SimulationRule;
+import model.WireWorldEngine;
+import model.WireWorldRule;
+import persistence.FileManager;
+import persistence.SimulationState;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Megjelenítő nélküli (headless) futtatás parancssorból.
+ * Betölt egy mentést a FileManagerrel, időzítő nélkül, a lehető leggyorsabban
+ * lefuttat N generációt, kiírja a végállapotot, és időzítési, populációs statisztikát ír.
+ *
+ * Használat:
+ *   java -cp ... controller.BatchRunner bemenet.json generációk [kimenet.json]
+ *        [--threads N] [--engine] [--report K]
+ *
+ *   --threads N  ennyi szálon fut a csempénkénti léptetés (alapból 1)
+ *   --engine     a szabályhoz illő gyorsított motor (bitcsomagolt / eseményvezérelt)
+ *   --report K   K generációnként kiírja a populációt
+ */
+public class BatchRunner {
+
+    private final FileManager fileManager = new FileManager();
+
+    private int threads = 1;
+    private boolean useEngine;
+    private long reportEvery;
+
+    private long minPopulation = Long.MAX_VALUE;
+    private long maxPopulation = Long.MIN_VALUE;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        BatchRunner runner = new BatchRunner();
+        String input = null;
+        String output = null;
+        long generations = -1;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        runner.threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--engine":
+                        runner.useEngine = true;
+                        break;
+                    case "--report":
+                        runner.reportEvery = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        if (input == null) {
+                            input = args[i];
+                        } else if (generations < 0) {
+                            generations = Long.parseLong(args[i]);
+                        } else if (output == null) {
+                            output = args[i];
+                        } else {
+                            throw new IllegalArgumentException("Ismeretlen argumentum: " + args[i]);
+                        }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            input = null;
+        }
+
+        if (input == null || generations < 0) {
+            System.err.println("Használat: BatchRunner bemenet.json generációk [kimenet.json] "
+                    + "[--threads N] [--engine] [--report K]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            runner.run(new File(input), generations, output != null ? new File(output) : null);
+        } catch (IOException e) {
+            System.err.println("Hiba: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Betöltés, futtatás és (ha van kimenet) mentés, a statisztikák kiírásával.
+     */
+    public void run(File input, long generations, File output) throws IOException {
+        long loadStart = System.nanoTime();
+        SimulationState state = fileManager.loadSimulation(input);
+        long loadTime = System.nanoTime() - loadStart;
+
+        Grid grid = state.grid;
+        SimulationRule rule = state.rule;
+        GameController controller = new GameController(grid, rule);
+        controller.setParallelism(threads);
+        if (useEngine) {
+            if (rule instanceof GameOfLifeRule) {
+                controller.setEngine(new BitLifeEngine());
+            } else if (rule instanceof WireWorldRule) {
+                controller.setEngine(new WireWorldEngine());
+            }
+        }
+
+        System.out.printf("Betöltve: %s (%dx%d, %s) %.1f ms%n", input.getName(),
+                grid.getWidth(), grid.getHeight(), rule.getClass().getSimpleName(), loadTime / 1e6);
+        long initialPopulation = population(grid);
+        recordPopulation(initialPopulation);
+        System.out.println("Kezdő populáció: " + initialPopulation);
+
+        long runStart = System.nanoTime();
+        for (long gen = 1; gen <= generations; gen++) {
+            controller.nextGeneration();
+            if (reportEvery > 0 && gen % reportEvery == 0) {
+                long population = population(grid);
+                recordPopulation(population);
+                System.out.printf("Generáció %d: populáció %d%n", gen, population);
+            }
+        }
+        long runTime = System.nanoTime() - runStart;
+        controller.setParallelism(1);
+
+        long finalPopulation = population(grid);
+        recordPopulation(finalPopulation);
+
+        double seconds = runTime / 1e9;
+        double cells = (double) grid.getWidth() * grid.getHeight() * generations;
+        System.out.printf("Generációk: %d, idő: %.3f s%n", generations, seconds);
+        if (generations > 0 && runTime > 0) {
+            System.out.printf("Sebesség: %.1f generáció/s, %.3e cella/s, %.3f ms/generáció%n",
+                    generations / seconds, cells / seconds, runTime / 1e6 / generations);
+        }
+        System.out.printf("Végső populáció: %d (min %d, max %d)%n",
+                finalPopulation, minPopulation, maxPopulation);
+
+        if (output != null) {
+            long saveStart = System.nanoTime();
+            fileManager.saveSimulation(output, grid, rule);
+            System.out.printf("Mentve: %s %.1f ms%n", output.getName(), (System.nanoTime() - saveStart) / 1e6);
+        }
+    }
+
+    private void recordPopulation(long population) {
+        minPopulation = Math.min(minPopulation, population);
+        maxPopulation = Math.max(maxPopulation, population);
+    }
+
+    /**
+     * A nem alapállapotú cellák száma (Életjátéknál az élő, Wireworldnél a vezetékcellák).
+     */
+    private static long population(Grid grid) {
+        byte defaultValue = (byte) grid.getDefaultState().ordinal();
+        byte[] row = new byte[grid.getWidth()];
+        long count = 0;
+        for (int y = 0; y < grid.getHeight(); y++) {
+            grid.getRow(y, row, 0);
+            for (byte value : row) {
+                if (value != defaultValue) count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,84 @@
+package controller;
+
+import java.util.Arrays;
+
+/**
+ * Ismétlődés (csendélet vagy oszcillátor) felismerése a generációk hash-eiből.
+ *
+ * A legutóbbi hash-ek egy közvetlen leképezésű táblába kerülnek (hash -> utolsó generáció), így
+ * generációnként egy táblakeresés dönti el, láttuk-e már ezt az állapotot; ütközéskor a régebbi
+ * bejegyzés egyszerűen felülíródik. Ciklusban az állapot legutóbbi előfordulása pontosan egy
+ * periódussal korábbi, ezért a talált különbség a periódus. A ciklus kezdetét a hash-ek
+ * gyűrűs előzménye alapján visszafelé lépkedve pontosítja (ha a kezdet bejegyzése felülíródott).
+ * A szerkesztés vagy szabályváltás utáni restart az addigi előzményt érvényteleníti.
+ */
+final class CycleDetector {
+
+    // Ennél hosszabb periódust nem keres
+    static final int MAX_PERIOD = 1 << 12;
+    private static final int HISTORY = MAX_PERIOD * 2;
+    private static final int TABLE_SIZE = MAX_PERIOD * 4;
+
+    private final long[] history = new long[HISTORY];
+    private final long[] tableHashes = new long[TABLE_SIZE];
+    private final long[] tableGenerations = new long[TABLE_SIZE];
+    // Az érvényes előzmény első és utolsó generációja (first < 0: nincs előzmény)
+    private long first = -1;
+    private long last;
+    private long cycleStart;
+
+    CycleDetector() {
+        Arrays.fill(tableGenerations, -1);
+    }
+
+    /**
+     * Új előzmény indítása az aktuális állapottal (a régebbi bejegyzések érvénytelenné válnak).
+     */
+    void restart(long generation, long hash) {
+        first = -1;
+        record(generation, hash);
+    }
+
+    void clear() {
+        first = -1;
+    }
+
+    /**
+     * Egy generáció hash-ének felvétele. Nem egymást követő generációnál új előzmény indul.
+     * @return A periódus, ha ez az állapot MAX_PERIOD generáción belül már előfordult, különben 0.
+     */
+    int record(long generation, long hash) {
+        if (first < 0 || generation != last + 1) {
+            first = generation;
+        }
+        last = generation;
+        history[(int) (generation & (HISTORY - 1))] = hash;
+
+        int slot = (int) (hash & (TABLE_SIZE - 1));
+        long seen = tableGenerations[slot];
+        boolean match = tableHashes[slot] == hash && seen >= first && seen < generation && generation - seen <= MAX_PERIOD;
+        tableHashes[slot] = hash;
+        tableGenerations[slot] = generation;
+        if (!match) return 0;
+
+        int period = (int) (generation - seen);
+        long start = seen;
+        long oldest = Math.max(first, generation - HISTORY + 1);
+        while (start - 1 >= oldest && hashAt(start - 1) == hashAt(start - 1 + period)) {
+            start--;
+        }
+        cycleStart = start;
+        return period;
+    }
+
+    /**
+     * Az utoljára talált ciklus első generációja.
+     */
+    long getCycleStart() {
+        return cycleStart;
+    }
+
+    private long hashAt(long generation) {
+        return history[(int) (generation & (HISTORY - 1))];
+    }
+}
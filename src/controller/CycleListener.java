@@ -0,0 +1,14 @@
+package controller;
+
+/**
+ * Értesítés a szimuláció ismétlődéséről (a léptető szálon hívódik).
+ */
+@FunctionalInterface
+public interface CycleListener {
+
+    /**
+     * @param startGeneration Az első generáció, amelytől az állapotok periodikusan ismétlődnek.
+     * @param period A periódus hossza generációkban (1: csendélet).
+     */
+    void cycleDetected(long startGeneration, int period);
+}
@@ -1,39 +1,89 @@
 package controller;
 
 import model.CellState;
+import model.GameOfLifeRule;
 import model.Grid;
+import model.HashLifeEngine;
 import model.SimulationRule;
+import model.SparseGrid;
+import model.StepEngine;
 import view.SimulationPanel;
 
-import javax.swing.Timer;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 
 /**
  * A játék logikáját és az időzítést vezérlő osztály (Controller).
  * Kapcsolatot tart a Modell (Grid) és a Nézet (SimulationPanel) között.
+ *
+ * A futó szimulációt egy saját szál lépteti, nem az EDT. A rácsot a gridLock védi: a lépés,
+ * a kirajzolás és a mentés ezt tartja, így a nézet mindig egy teljes generációt lát.
+ * A kész generációkat a szál legfeljebb képfrissítési ütemben adja át a nézetnek
+ * (a közbülső generációk rajzolása kimarad). Az egérrel szerkesztett cellák sorba kerülnek,
+ * és a lépések között, zárolt rácson íródnak be, így az EDT sosem vár egy teljes lépésre.
  */
 public class GameController {
 
     private Grid grid;
     private SimulationRule currentRule;
     private SimulationPanel view;
+    private StepEngine engine;
+    private HashLifeEngine hashLife;
 
-    private Timer simulationTimer;
-    private int speedDelay = 500;
+    // Párhuzamos léptetés: 1 szál esetén nincs pool, a lépés a hívó szálon fut
+    private static final int MIN_TILES_PER_TASK = 4;
+    private int parallelism = 1;
+    private ForkJoinPool stepPool;
+
+    // A változott cellák befoglaló téglalapja (újrahasznosított kimeneti tömb)
+    private final int[] changedBounds = new int[4];
+
+    // Két átadás között legalább ennyi idő telik (kb. 60 kép/s)
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final ReentrantLock gridLock = new ReentrantLock();
+    private final Queue<CellEdit> pendingEdits = new ConcurrentLinkedQueue<>();
+    private volatile Thread simulationThread;
+    // Sebesség: cél generáció / másodperc (UNLIMITED: amilyen gyorsan csak lehet)
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final int[] SPEEDS = {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000,
+        100_000, 200_000, 500_000, 1_000_000, UNLIMITED
+    };
+    // Egy zárolás alatt legfeljebb ennyi ideig fut egy köteg (közben a kirajzolás és a szerkesztés vár)
+    private static final long BATCH_NANOS = FRAME_NANOS / 2;
+    // Ennél nagyobb lemaradást az ütemező nem hoz be, hanem elenged (lassú lépések)
+    private static final long MAX_BACKLOG_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    // Ugrás közben legfeljebb ilyen gyakran jelez haladást
+    private static final long PROGRESS_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private volatile int targetSpeed = 2;
+    private volatile long generation;
+    // Az utolsó átadás óta kiszámolt generációk és az átadás ideje (gridLock alatt)
+    private int stepsSincePublish;
+    private long lastPublish;
+    private SimulationMetrics metrics = new SimulationMetrics();
+
+    // Ismétlődésfigyelés (gridLock alatt): a felismert ciklus érvényes, amíg szerkesztés vagy szabályváltás nem jön
+    private final CycleDetector cycleDetector = new CycleDetector();
+    private boolean cycleDetection;
+    private int cyclePeriod;
+    private long cycleStart;
+    private boolean cycleFound;   // felismerve, de még nincs jelentve
+    private volatile CycleListener cycleListener;
     
-    private CellState selectedToolState = CellState.CONDUCTOR;
+    private volatile CellState selectedToolState = CellState.CONDUCTOR;
+    // Az utolsó kattintás által beírt állapot, ezt festi a húzás (gridLock alatt)
+    private CellState strokeState;
 
     public GameController(Grid grid, SimulationRule rule) {
         this.grid = grid;
         this.currentRule = rule;
-
-        this.simulationTimer = new Timer(speedDelay, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                nextGeneration();
-            }
-        });
     }
     
     public SimulationRule getRule() {
@@ -44,56 +94,562 @@ public class GameController {
         this.view = view;
     }
 
+    /**
+     * Elindítja a szimulációs szálat (ha még nem fut).
+     */
     public void startSimulation() {
-        if (!simulationTimer.isRunning()) {
-            simulationTimer.start();
-        }
+        if (simulationThread != null) return;
+        Thread thread = new Thread(this::runSimulation, "simulation");
+        thread.setDaemon(true);
+        simulationThread = thread;
+        thread.start();
     }
 
+    /**
+     * Leállítja a szimulációs szálat, és megvárja, hogy az éppen futó lépés befejeződjön;
+     * visszatérés után már nem indul új lépés. Az utolsó generáció kirajzolását is kéri.
+     */
     public void stopSimulation() {
-        if (simulationTimer.isRunning()) {
-            simulationTimer.stop();
+        Thread thread = simulationThread;
+        if (thread == null) return;
+        simulationThread = null;
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // a szálat nem szakítjuk meg (egy leképezett rács csatornáját lezárná)
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        applyPendingEdits();
+        gridLock.lock();
+        try {
+            publish(true);
+        } finally {
+            gridLock.unlock();
         }
     }
     
     public boolean isRunning() {
-        return simulationTimer.isRunning();
+        return simulationThread != null;
+    }
+
+    /**
+     * A szimulációs szál ciklusa. Az ütemező a cél sebességből és az indulás óta eltelt időből
+     * számolja, hány generáció esedékes, és ezeket kötegben, egyetlen zárolás alatt lépteti
+     * (a képfrissítésnél gyorsabb célnál így egy képkockára több generáció jut).
+     * Ha a lépések lassabbak a célnál, a MAX_BACKLOG_NANOS-nál nagyobb lemaradás elvész,
+     * vagyis a szimuláció a lehető leggyorsabban, de torlódás nélkül megy tovább.
+     */
+    private void runSimulation() {
+        Thread self = Thread.currentThread();
+        try {
+            int speed = 0;
+            long base = 0;
+            long done = 0;
+            while (simulationThread == self) {
+                long now = System.nanoTime();
+                if (speed != targetSpeed) {
+                    // Sebességváltáskor az ütemezés újraindul (az első lépés azonnal esedékes)
+                    speed = targetSpeed;
+                    base = now - periodNanos(speed);
+                    done = 0;
+                }
+                long due;
+                if (speed == UNLIMITED) {
+                    due = Long.MAX_VALUE;
+                } else {
+                    due = (long) ((now - base) / (double) periodNanos(speed)) - done;
+                    if (due <= 0) {
+                        LockSupport.parkNanos(this, base + (done + 1) * periodNanos(speed) - now);
+                        continue;
+                    }
+                    long maxBacklog = Math.max(1, MAX_BACKLOG_NANOS / periodNanos(speed));
+                    if (due > maxBacklog) {
+                        base += (due - 1) * periodNanos(speed);
+                        due = 1;
+                    }
+                }
+                done += runBatch(due);
+                if (speed != UNLIMITED && done > 1_000_000) {
+                    // A base eltolása, hogy a szorzat ne nőjön korlátlanul
+                    base += done * periodNanos(speed);
+                    done = 0;
+                }
+            }
+        } finally {
+            if (simulationThread == self) {
+                simulationThread = null;
+            }
+        }
+    }
+
+    /**
+     * Két generáció között eltelő idő a megadott sebességnél (nanoszekundum, legalább 1).
+     */
+    private static long periodNanos(int speed) {
+        return Math.max(1, TimeUnit.SECONDS.toNanos(1) / speed);
+    }
+
+    /**
+     * Legfeljebb max generáció egyetlen zárolás alatt, amíg a köteg ideje (BATCH_NANOS) tart,
+     * és nem vár szerkesztés. Utána a nézet megkapja a generációt (képfrissítési ütemben).
+     * @return A kiszámolt generációk száma.
+     */
+    private long runBatch(long max) {
+        Thread self = Thread.currentThread();
+        long steps = 0;
+        boolean found;
+        gridLock.lock();
+        try {
+            metrics.beginSteps();
+            long start = System.nanoTime();
+            long stepStart = start;
+            long now;
+            do {
+                step();
+                steps++;
+                now = System.nanoTime();
+                metrics.recordStep(now - stepStart);
+                stepStart = now;
+            } while (steps < max && simulationThread == self && pendingEdits.isEmpty()
+                    && !cycleFound && now - start < BATCH_NANOS);
+            metrics.endSteps(steps, cellsPerGeneration(), now);
+            publish(false);
+            found = cycleFound;
+            cycleFound = false;
+        } finally {
+            gridLock.unlock();
+        }
+        applyPendingEdits();
+        if (found) {
+            reportCycle();
+        }
+        return steps;
+    }
+
+    /**
+     * Az eddig kiszámolt generációk száma.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Zárolja a rácsot a léptetés elől (pl. mentéshez). A zárat az unlockGrid oldja fel.
+     */
+    public void lockGrid() {
+        gridLock.lock();
+    }
+
+    /**
+     * Mint a lockGrid, de legfeljebb a megadott ideig vár (a kirajzolás ne álljon egy lassú lépésre).
+     * @return Sikerült-e zárolni.
+     */
+    public boolean tryLockGrid(long timeoutMillis) {
+        try {
+            return gridLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void unlockGrid() {
+        gridLock.unlock();
     }
 
     /**
      * Egy lépés a szimulációban (Generáció váltás).
-     * Külön tömbbe számolja ki az új állapotokat,
-     * hogy a frissítés "egyszerre" történjen
+     * A rács következő generációs pufferébe számolja ki az új állapotokat,
+     * majd a pufferek cseréjével a frissítés "egyszerre" történik.
+     * Csak az előző lépésben változott csempéket és szomszédaikat értékeli ki,
+     * így a lépés költsége az aktivitással arányos, nem a rács méretével.
+     * Soros módban a lépés nem foglal memóriát.
      */
     public void nextGeneration() {
+        boolean found;
+        gridLock.lock();
+        try {
+            metrics.beginSteps();
+            long start = System.nanoTime();
+            step();
+            long end = System.nanoTime();
+            metrics.recordStep(end - start);
+            metrics.endSteps(1, cellsPerGeneration(), end);
+            // A szimulációs szálról képfrissítési ütemben, máskor (pl. egyenkénti léptetés) azonnal
+            publish(Thread.currentThread() != simulationThread);
+            found = cycleFound;
+            cycleFound = false;
+        } finally {
+            gridLock.unlock();
+        }
+        applyPendingEdits();
+        if (found) {
+            reportCycle();
+        }
+    }
+
+    /**
+     * A metrikák cellaszáma: generációnként a teljes rács (ritka rácsnál a megjelenített ablak).
+     */
+    private long cellsPerGeneration() {
+        return (long) grid.getWidth() * grid.getHeight();
+    }
+
+    /**
+     * Egy generáció kiszámolása (gridLock alatt), engedélyezett JFR eseménnyel együtt.
+     */
+    private void step() {
+        StepEvent event = StepEvent.start();
+        generation++;
+        stepsSincePublish++;
+        int changedTiles = advance();
+        if (cycleDetection && cyclePeriod == 0) {
+            int period = cycleDetector.record(generation, grid.getHash());
+            if (period > 0) {
+                cyclePeriod = period;
+                cycleStart = cycleDetector.getCycleStart();
+                cycleFound = true;
+            }
+        }
+        if (event != null && event.shouldCommit()) {
+            event.generation = generation;
+            event.width = grid.getWidth();
+            event.height = grid.getHeight();
+            event.rule = currentRule.getClass().getSimpleName();
+            event.engine = engine != null && engine.supports(currentRule) ? engine.getClass().getSimpleName() : null;
+            event.changedTiles = changedTiles;
+            event.commit();
+        }
+    }
+
+    /**
+     * A rács léptetése a szabályhoz illő úton.
+     * @return A változott csempék száma, vagy -1, ha az út ezt nem tartja nyilván.
+     */
+    private int advance() {
+        if (grid instanceof SparseGrid) {
+            // A ritka rács maga lépteti a darabjait; a motorok a korlátos rácshoz készültek
+            ((SparseGrid) grid).nextGeneration(currentRule);
+            return -1;
+        }
+
+        if (engine != null && engine.supports(currentRule)) {
+            engine.step(grid, currentRule);
+            return -1;
+        }
+
+        int activeTiles = grid.beginStep();
+
+        if (stepPool != null && activeTiles > MIN_TILES_PER_TASK) {
+            int tilesPerTask = Math.max(MIN_TILES_PER_TASK, activeTiles / (parallelism * 4));
+            stepPool.invoke(new TileTask(0, activeTiles, tilesPerTask));
+        } else {
+            computeTiles(0, activeTiles);
+        }
+        grid.swapBuffers();
+        return grid.getChangedTileCount();
+    }
+
+    /**
+     * Az utolsó átadás óta kiszámolt generációk átadása a nézetnek (gridLock alatt).
+     * force nélkül csak akkor, ha az előző átadás óta eltelt egy képkocka ideje.
+     */
+    private void publish(boolean force) {
+        if (stepsSincePublish == 0) return;
+        long now = System.nanoTime();
+        if (!force && now - lastPublish < FRAME_NANOS) return;
+        lastPublish = now;
+        repaintChanged(stepsSincePublish == 1);
+        stepsSincePublish = 0;
+    }
+
+    /**
+     * Csak a legutóbbi rajzolás óta változott cellák újrarajzolását kéri a nézettől:
+     * csempénként a változott cellák befoglaló téglalapját, amiket a nézet összevon.
+     * Ha több generáció telt el azóta (exact hamis), a teljes változott csempék rajzolódnak újra.
+     * Ritka rácsnál, vagy ha a csempék nagyobb része változott, a teljes panel rajzolódik újra.
+     * Nézet nélkül a változott csempék a rácsban maradnak (a lekérdezőnek).
+     */
+    private void repaintChanged(boolean exact) {
+        if (view == null) return;
+        if (grid instanceof SparseGrid) {
+            view.repaint();
+            return;
+        }
+        int count = grid.getDirtyTileCount();
+        if (count * 2 > grid.getTileColumns() * grid.getTileRows()) {
+            grid.clearDirtyTiles();
+            view.repaint();
+            return;
+        }
+        int tileColumns = grid.getTileColumns();
+        for (int i = 0; i < count; i++) {
+            int tile = grid.getDirtyTile(i);
+            if (exact) {
+                grid.getChangedBounds(tile, changedBounds);
+            } else {
+                changedBounds[0] = (tile % tileColumns) * Grid.TILE_SIZE;
+                changedBounds[1] = (tile / tileColumns) * Grid.TILE_SIZE;
+                changedBounds[2] = Math.min(changedBounds[0] + Grid.TILE_SIZE, grid.getWidth());
+                changedBounds[3] = Math.min(changedBounds[1] + Grid.TILE_SIZE, grid.getHeight());
+            }
+            int width = changedBounds[2] - changedBounds[0];
+            int height = changedBounds[3] - changedBounds[1];
+            if (width > 0 && height > 0) {
+                view.repaintCells(changedBounds[0], changedBounds[1], width, height);
+            }
+        }
+        grid.clearDirtyTiles();
+    }
+
+    /**
+     * Egy szerkesztett cella újrarajzolása (gridLock alatt). A többi változott csempe
+     * a következő átadásnál teljes egészében rajzolódik újra.
+     */
+    private void repaintCell(int x, int y) {
+        if (view == null) return;
+        if (stepsSincePublish == 0) {
+            grid.clearDirtyTiles();
+        }
+        view.repaintCells(x, y, 1, 1);
+    }
+
+    /**
+     * Nagy ugrás: N generációval lépteti a szimulációt.
+     * Életjátéknál (B0 nélküli szabállyal) a HashLife motort használja: korlátos rácson a rács szélein
+     * ugyanúgy, mint a lépésenkénti futás, ritka rácson a teljes int tartományon. Minden más esetben
+     * N-szer lép. Felismert ciklusban (setCycleDetection) a teljes periódusokat kihagyja, és csak a maradékot lépteti.
+     */
+    public void jumpGenerations(long generations) {
+        jumpGenerations(generations, null);
+    }
+
+    /**
+     * Mint a jumpGenerations, hosszú ugráshoz (háttérszálról hívandó). A hívó szál megszakítása
+     * (interrupt) a legutóbbi teljes lépés után leállítja az ugrást; a rács és a generációszám ekkor
+     * a ténylegesen megtett lépéseknek felel meg.
+     * @param progress Legfeljebb tizedmásodpercenként megkapja a megtett generációk számát (lehet null).
+     * @return A ténylegesen megtett generációk száma.
+     */
+    public long jumpGenerations(long generations, LongConsumer progress) {
+        if (generations <= 0) return 0;
+        long done;
+        gridLock.lock();
+        try {
+            // A zárra várva megszakított ugrás már a rácshoz sem nyúl
+            done = Thread.currentThread().isInterrupted() ? 0 : jump(generations, throttle(progress));
+            publish(true);
+        } finally {
+            gridLock.unlock();
+        }
+        applyPendingEdits();
+        return done;
+    }
+
+    private static LongConsumer throttle(LongConsumer progress) {
+        if (progress == null) return null;
+        long[] last = { System.nanoTime() };
+        return done -> {
+            long now = System.nanoTime();
+            if (now - last[0] >= PROGRESS_NANOS) {
+                last[0] = now;
+                progress.accept(done);
+            }
+        };
+    }
+
+    private long jump(long generations, LongConsumer progress) {
+        if (cyclePeriod > 0) {
+            // Ismert ciklusban az állapot periódusonként ismétlődik: a teljes periódusok kihagyhatók
+            generation += generations - generations % cyclePeriod;
+            for (long i = generations % cyclePeriod; i > 0; i--) {
+                step();
+            }
+            return generations;
+        }
+        if (currentRule instanceof GameOfLifeRule && (grid.isBounded() || grid instanceof SparseGrid)
+                && !((GameOfLifeRule) currentRule).getBirthRules().contains(0)) {
+            if (hashLife == null) {
+                hashLife = new HashLifeEngine();
+            }
+            hashLife.setRule((GameOfLifeRule) currentRule);
+            hashLife.setProgressListener(progress);
+            hashLife.load(grid);
+            if (grid.isBounded()) {
+                hashLife.advanceWithin(generations, grid.getWidth(), grid.getHeight());
+            } else {
+                hashLife.advanceWithin(generations, Integer.MIN_VALUE, Integer.MIN_VALUE, 1L << 32, 1L << 32);
+            }
+            hashLife.setProgressListener(null);
+            hashLife.store(grid);
+            long done = hashLife.getGeneration();
+            // Az ugrás után egy változatlan csempe is lehet más fázisban (pl. oszcillátor)
+            grid.markAllChanged();
+            generation += done;
+            stepsSincePublish += 2;   // pontos (egy lépéses) változáskeresés itt nem használható
+            invalidateCycle();
+            return done;
+        }
+        Thread self = Thread.currentThread();
+        long done = 0;
+        while (done < generations && !self.isInterrupted()) {
+            step();
+            done++;
+            if (cyclePeriod > 0) {
+                // Közben felismert ciklus: a maradékból is kihagyhatók a teljes periódusok
+                return done + jump(generations - done, progress);
+            }
+            if (progress != null) progress.accept(done);
+        }
+        return done;
+    }
+
+    /**
+     * Az aktív csempék [from, to) tartományát számolja ki a következő generáció pufferébe.
+     * Csak az aktuális generációt olvassa és a saját csempéibe ír, így a részek párhuzamosan futhatnak.
+     */
+    private void computeTiles(int from, int to) {
         int width = grid.getWidth();
         int height = grid.getHeight();
+        int tileColumns = grid.getTileColumns();
 
-        CellState[][] nextStates = new CellState[height][width];
+        for (int i = from; i < to; i++) {
+            int tile = grid.getActiveTile(i);
+            int startX = (tile % tileColumns) * Grid.TILE_SIZE;
+            int startY = (tile / tileColumns) * Grid.TILE_SIZE;
+            int endX = Math.min(startX + Grid.TILE_SIZE, width);
+            int endY = Math.min(startY + Grid.TILE_SIZE, height);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                nextStates[y][x] = currentRule.calculateNextState(grid, x, y);
+            if (grid.stepRegion(currentRule, startX, startY, endX, endY)) {
+                grid.markActiveTileChanged(i);
             }
         }
+    }
+
+    /**
+     * Az aktív csempék listáját részekre bontó fork/join feladat. Minden csempét pontosan
+     * egy rész számol, ezért az eredmény a szálak számától függetlenül megegyezik a soros úttal.
+     */
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final int tilesPerTask;
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                grid.setCell(x, y, nextStates[y][x]);
+        TileTask(int from, int to, int tilesPerTask) {
+            this.from = from;
+            this.to = to;
+            this.tilesPerTask = tilesPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= tilesPerTask) {
+                computeTiles(from, to);
+                return;
             }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(from, mid, tilesPerTask),
+                      new TileTask(mid, to, tilesPerTask));
         }
+    }
 
-        if (view != null) {
-            view.repaint();
+    /**
+     * Beállítja, hány szálon fusson a cellánkénti léptetés.
+     * 1 (vagy kevesebb) esetén a lépés a hívó szálon, sorosan fut.
+     */
+    public void setParallelism(int threads) {
+        int newParallelism = Math.max(1, threads);
+        gridLock.lock();
+        try {
+            if (newParallelism == parallelism) return;
+
+            if (stepPool != null) {
+                stepPool.shutdown();
+                stepPool = null;
+            }
+            parallelism = newParallelism;
+            if (parallelism > 1) {
+                stepPool = new ForkJoinPool(parallelism);
+            }
+        } finally {
+            gridLock.unlock();
         }
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * Egérkattintás kezelése.
      * Életjátéknál: Váltogatja az állapotot (Alive/Dead).
      * Wireworldnél: Az eszköztáron kiválasztott elemet rajzolja.
      */
     public void handleCellClick(int x, int y) {
+        edit(new CellEdit(x, y, null, selectedToolState, false));
+    }
+
+    /**
+     * Egérhúzás egy cellán: a húzást indító kattintás által beírt állapotot festi.
+     * A döntés a zár alatt születik, így a hívónak (EDT) nem kell a rácsot olvasnia.
+     */
+    public void dragCell(int x, int y) {
+        edit(new CellEdit(x, y, null, null, true));
+    }
+
+    /**
+     * Közvetlen festés egy cellára (pl. egérhúzásnál).
+     * Nem váltogat (toggle), hanem felülírja az állapotot.
+     */
+    public void paintCell(int x, int y, CellState state) {
+        edit(new CellEdit(x, y, state, state, false));
+    }
+
+    /**
+     * Egy szerkesztés sorba állítása és (ha a rács éppen szabad) azonnali beírása.
+     * Futó lépés alatt a szimulációs szál írja be a lépés végén.
+     */
+    private void edit(CellEdit edit) {
+        pendingEdits.add(edit);
+        applyPendingEdits();
+    }
+
+    /**
+     * A sorban álló szerkesztések beírása, ha a rács zárolható. A ciklus a zár elengedése
+     * utáni újraellenőrzés miatt kell: így egyetlen szerkesztés sem maradhat a sorban.
+     */
+    private void applyPendingEdits() {
+        while (!pendingEdits.isEmpty() && gridLock.tryLock()) {
+            try {
+                CellEdit edit;
+                while ((edit = pendingEdits.poll()) != null) {
+                    if (edit.drag) {
+                        if (strokeState != null) setCell(edit.x, edit.y, strokeState);
+                    } else if (edit.state == null) {
+                        toggleCell(edit.x, edit.y, edit.toolState);
+                    } else {
+                        setCell(edit.x, edit.y, edit.state);
+                    }
+                }
+                invalidateCycle();
+            } finally {
+                gridLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Kattintás egy cellára (gridLock alatt).
+     */
+    private void toggleCell(int x, int y, CellState toolState) {
         CellState current = grid.getCell(x, y);
 
         // Ellenőrizzük, hogy Életjáték vagy Wireworld módban vagyunk-e
@@ -101,48 +657,171 @@ public class GameController {
 
         if (isGameOfLife) {
             // Életjáték: Toggle
-            if (current == CellState.ALIVE) {
-                grid.setCell(x, y, CellState.DEAD);
-            } else {
-                grid.setCell(x, y, CellState.ALIVE);
-            }
+            strokeState = current == CellState.ALIVE ? CellState.DEAD : CellState.ALIVE;
         } else {
             // Wireworld logika: "Ecset" használata
-            grid.setCell(x, y, selectedToolState);
+            strokeState = toolState;
         }
+        grid.setCell(x, y, strokeState);
+        if (engine != null) engine.cellChanged(grid, x, y);
 
-        if (view != null) view.repaint();
+        repaintCell(x, y);
     }
 
+    private void setCell(int x, int y, CellState state) {
+        grid.setCell(x, y, state);
+        if (engine != null) engine.cellChanged(grid, x, y);
+        repaintCell(x, y);
+    }
+
+    /**
+     * Egy egérrel végzett szerkesztés. state == null: kattintás (Életjátéknál váltás, Wireworldnél toolState);
+     * drag: húzás, a legutóbbi kattintás állapotával.
+     */
+    private static final class CellEdit {
+        final int x;
+        final int y;
+        final CellState state;
+        final CellState toolState;
+        final boolean drag;
+
+        CellEdit(int x, int y, CellState state, CellState toolState, boolean drag) {
+            this.x = x;
+            this.y = y;
+            this.state = state;
+            this.toolState = toolState;
+            this.drag = drag;
+        }
+    }
+
+    /**
+     * Egy fokozattal gyorsít (a legnagyobb fokozat a korlátlan).
+     */
     public void increaseSpeed() {
-        if (speedDelay > 50) {
-            speedDelay -= 50;
-            updateTimerSpeed();
+        for (int speed : SPEEDS) {
+            if (speed > targetSpeed) {
+                setTargetSpeed(speed);
+                return;
+            }
         }
     }
 
+    /**
+     * Egy fokozattal lassít (legfeljebb 1 generáció / másodpercig).
+     */
     public void decreaseSpeed() {
-        if (speedDelay < 2000) {
-            speedDelay += 50;
-            updateTimerSpeed();
+        for (int i = SPEEDS.length - 1; i >= 0; i--) {
+            if (SPEEDS[i] < targetSpeed) {
+                setTargetSpeed(SPEEDS[i]);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A cél sebesség generáció / másodpercben (1-től), vagy UNLIMITED.
+     */
+    public void setTargetSpeed(int gensPerSecond) {
+        targetSpeed = Math.max(1, gensPerSecond);
+        wakeSimulation();
+    }
+
+    public int getTargetSpeed() {
+        return targetSpeed;
+    }
+
+    /**
+     * Sebességváltáskor a szál ne várja ki a régi ütemet.
+     */
+    private void wakeSimulation() {
+        Thread thread = simulationThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Az ismétlődésfigyelés be- vagy kikapcsolása. Bekapcsolva a rács Zobrist-hash-t tart karban,
+     * és lépésenként egy táblakeresés dönti el, visszatért-e egy korábbi állapot (legfeljebb
+     * CycleDetector.MAX_PERIOD periódusig). Ilyenkor a futó szimuláció megáll, a figyelő pedig
+     * megkapja a ciklus kezdetét és periódusát; amíg a ciklus érvényes, a jumpGenerations a teljes
+     * periódusokat kihagyja. Csak heapen tárolt, korlátos rácson működik.
+     */
+    public void setCycleDetection(boolean enabled) {
+        gridLock.lock();
+        try {
+            grid.setHashing(enabled);
+            cycleDetection = enabled && grid.isHashing();
+            invalidateCycle();
+        } finally {
+            gridLock.unlock();
         }
     }
 
-    private void updateTimerSpeed() {
-        boolean wasRunning = simulationTimer.isRunning();
-        simulationTimer.setDelay(speedDelay);
-        if (wasRunning) {
-            simulationTimer.restart();
+    public boolean isCycleDetection() {
+        return cycleDetection;
+    }
+
+    public void setCycleListener(CycleListener listener) {
+        this.cycleListener = listener;
+    }
+
+    /**
+     * A felismert ciklus periódusa, vagy 0, ha (még) nincs érvényes ciklus.
+     */
+    public int getCyclePeriod() {
+        gridLock.lock();
+        try {
+            return cyclePeriod;
+        } finally {
+            gridLock.unlock();
         }
     }
-    
+
     /**
-     * Közvetlen festés egy cellára (pl. egérhúzásnál).
-     * Nem váltogat (toggle), hanem felülírja az állapotot.
+     * A felismert ciklus első generációja (csak getCyclePeriod() > 0 esetén értelmes).
      */
-    public void paintCell(int x, int y, CellState state) {
-        grid.setCell(x, y, state);
-        if (view != null) view.repaint();
+    public long getCycleStart() {
+        gridLock.lock();
+        try {
+            return cycleStart;
+        } finally {
+            gridLock.unlock();
+        }
+    }
+
+    /**
+     * A rács kívülről változott (gridLock alatt): az eddigi előzmény és a felismert ciklus elvész,
+     * a figyelés az aktuális állapottól indul újra.
+     */
+    private void invalidateCycle() {
+        cyclePeriod = 0;
+        cycleFound = false;
+        if (cycleDetection) {
+            cycleDetector.restart(generation, grid.getHash());
+        } else {
+            cycleDetector.clear();
+        }
+    }
+
+    /**
+     * A felismert ciklus jelentése (a zár elengedése után, a léptető szálon): megállítja a futást,
+     * és értesíti a figyelőt.
+     */
+    private void reportCycle() {
+        long start;
+        int period;
+        gridLock.lock();
+        try {
+            if (cyclePeriod == 0) return;   // közben szerkesztették
+            start = cycleStart;
+            period = cyclePeriod;
+        } finally {
+            gridLock.unlock();
+        }
+        stopSimulation();
+        CycleListener listener = cycleListener;
+        if (listener != null) {
+            listener.cycleDetected(start, period);
+        }
     }
 
     public CellState getSelectedToolState() {
@@ -153,9 +832,54 @@ public class GameController {
         this.selectedToolState = state;
     }
 
+    /**
+     * Beállítja (vagy a helyben módosított szabály után újra érvényesíti) a szabályrendszert.
+     * A teljes rács újra kiértékelődik, mert a régi szabály szerint nyugvó részek is változhatnak.
+     */
     public void setRule(SimulationRule rule) {
-        this.currentRule = rule;
+        gridLock.lock();
+        try {
+            this.currentRule = rule;
+            grid.markAllChanged();
+            invalidateCycle();
+        } finally {
+            gridLock.unlock();
+        }
+    }
+
+    /**
+     * Beállítja a gyorsított léptető motort (null esetén cellánkénti számolás).
+     * Ha a motor az aktuális szabályt nem támogatja, a cellánkénti út fut.
+     */
+    public void setEngine(StepEngine engine) {
+        gridLock.lock();
+        try {
+            this.engine = engine;
+        } finally {
+            gridLock.unlock();
+        }
+    }
+
+    public StepEngine getEngine() {
+        return engine;
     }
 
     public Grid getGrid() { return grid; }
+
+    /**
+     * A léptetés és a kirajzolás mérőszámai (a kijelzőnek és a JMX-nek).
+     */
+    public SimulationMetrics getMetrics() { return metrics; }
+
+    /**
+     * Közös metrikapéldány beállítása (pl. új szimulációnál a regisztrált MBean marad).
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+        gridLock.lock();
+        try {
+            this.metrics = metrics;
+        } finally {
+            gridLock.unlock();
+        }
+    }
 }
\ No newline at end of file
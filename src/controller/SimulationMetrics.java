@@ -0,0 +1,190 @@
+package controller;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A léptető ciklus és a kirajzolás számlálói és késleltetés-hisztogramjai.
+ *
+ * A léptetés adatait a gridLock alatt lépő szál írja (beginSteps / recordStep / endSteps),
+ * a kirajzolásét az EDT (recordPaint); a rögzítés foglalás nélküli. Kb. másodpercenként
+ * az aktuális ablak lezárul: a sebességek és percentilisek volatile mezőkbe kerülnek, ezeket
+ * olvassa a kijelző és a JMX bármely szálról. Ha két ablaknyi ideig nem jön adat (pl. áll a
+ * szimuláció), a sebességek 0-t mutatnak, a percentilisek az utolsó értéket.
+ */
+public final class SimulationMetrics implements SimulationMetricsMXBean {
+
+    public static final String OBJECT_NAME = "gameoflife:type=SimulationMetrics";
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    // Léptetés (gridLock alatt)
+    private final LatencyHistogram stepTimes = new LatencyHistogram();
+    private long generations;
+    private long cells;
+    private long allocated;
+    private long allocationMark;
+    private long stepWindowStart;
+    private long stepWindowGenerations;
+    private long stepWindowCells;
+    private long stepWindowAllocated;
+
+    // Kirajzolás (EDT)
+    private final LatencyHistogram paintTimes = new LatencyHistogram();
+    private long paints;
+    private long paintWindowStart;
+    private long paintWindowPaints;
+
+    // Az utolsó lezárt ablakok (bármely szálról olvasható)
+    private volatile long totalGenerations;
+    private volatile long totalPaints;
+    private volatile long stepRollover;
+    private volatile long paintRollover;
+    private volatile double generationsPerSecond;
+    private volatile double cellsPerSecond;
+    private volatile double stepP50;
+    private volatile double stepP99;
+    private volatile double allocationPerGeneration = -1;
+    private volatile double paintsPerSecond;
+    private volatile double paintP50;
+    private volatile double paintP99;
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Regisztrálja a platform MBean szerveren (OBJECT_NAME néven), hogy a monitorozás lekérdezhesse.
+     * Ha a név már foglalt, csak jelzi; a kijelző ettől még működik.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("A metrikák nem regisztrálhatók: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Egy lépéssorozat kezdete (gridLock alatt): a szál foglalásának kiindulópontja.
+     */
+    void beginSteps() {
+        long now = System.nanoTime();
+        if (now - stepWindowStart > 2 * WINDOW_NANOS) {
+            // Hosszú szünet után új ablak, különben a szünet lerontaná a sebességet
+            stepWindowStart = now;
+            stepWindowGenerations = generations;
+            stepWindowCells = cells;
+            stepWindowAllocated = allocated;
+            stepTimes.reset();
+        }
+        allocationMark = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    void recordStep(long nanos) {
+        stepTimes.record(nanos);
+    }
+
+    /**
+     * Egy lépéssorozat vége (gridLock alatt, ugyanazon a szálon, mint a beginSteps).
+     * @param steps A kiszámolt generációk.
+     * @param cellsPerGeneration Generációnként kiértékelt cellák.
+     * @param now Az utolsó lépés vége (System.nanoTime).
+     */
+    void endSteps(long steps, long cellsPerGeneration, long now) {
+        generations += steps;
+        cells += steps * cellsPerGeneration;
+        if (THREADS != null) {
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - allocationMark;
+        }
+        totalGenerations = generations;
+
+        long elapsed = now - stepWindowStart;
+        if (elapsed < WINDOW_NANOS) return;
+        long windowGenerations = generations - stepWindowGenerations;
+        generationsPerSecond = windowGenerations * (double) WINDOW_NANOS / elapsed;
+        cellsPerSecond = (cells - stepWindowCells) * (double) WINDOW_NANOS / elapsed;
+        if (THREADS != null && windowGenerations > 0) {
+            allocationPerGeneration = (allocated - stepWindowAllocated) / (double) windowGenerations;
+        }
+        if (stepTimes.count() > 0) {
+            stepP50 = stepTimes.percentile(0.5);
+            stepP99 = stepTimes.percentile(0.99);
+        }
+        stepTimes.reset();
+        stepWindowStart = now;
+        stepWindowGenerations = generations;
+        stepWindowCells = cells;
+        stepWindowAllocated = allocated;
+        stepRollover = now;
+    }
+
+    /**
+     * Egy kirajzolás ideje (EDT).
+     */
+    public void recordPaint(long nanos) {
+        long now = System.nanoTime();
+        if (now - paintWindowStart > 2 * WINDOW_NANOS) {
+            paintWindowStart = now - nanos;
+            paintWindowPaints = paints;
+            paintTimes.reset();
+        }
+        paintTimes.record(nanos);
+        paints++;
+        totalPaints = paints;
+
+        long elapsed = now - paintWindowStart;
+        if (elapsed < WINDOW_NANOS) return;
+        paintsPerSecond = (paints - paintWindowPaints) * (double) WINDOW_NANOS / elapsed;
+        paintP50 = paintTimes.percentile(0.5);
+        paintP99 = paintTimes.percentile(0.99);
+        paintTimes.reset();
+        paintWindowStart = now;
+        paintWindowPaints = paints;
+        paintRollover = now;
+    }
+
+    private static boolean stale(long rollover) {
+        return System.nanoTime() - rollover > 2 * WINDOW_NANOS;
+    }
+
+    @Override
+    public long getGenerations() { return totalGenerations; }
+
+    @Override
+    public double getGenerationsPerSecond() { return stale(stepRollover) ? 0 : generationsPerSecond; }
+
+    @Override
+    public double getCellsPerSecond() { return stale(stepRollover) ? 0 : cellsPerSecond; }
+
+    @Override
+    public double getStepP50Micros() { return stepP50 / 1000; }
+
+    @Override
+    public double getStepP99Micros() { return stepP99 / 1000; }
+
+    @Override
+    public double getAllocatedBytesPerGeneration() { return allocationPerGeneration; }
+
+    @Override
+    public long getPaints() { return totalPaints; }
+
+    @Override
+    public double getPaintsPerSecond() { return stale(paintRollover) ? 0 : paintsPerSecond; }
+
+    @Override
+    public double getPaintP50Micros() { return paintP50 / 1000; }
+
+    @Override
+    public double getPaintP99Micros() { return paintP99 / 1000; }
+}
@@ -0,0 +1,31 @@
+package controller;
+
+/**
+ * A szimuláció teljesítménymutatói JMX-en keresztül (platform MBean szerver, SimulationMetrics.OBJECT_NAME).
+ * A sebességek és percentilisek az utolsó lezárt, kb. egy másodperces ablakra vonatkoznak.
+ */
+public interface SimulationMetricsMXBean {
+
+    /** Az összes mért generáció (a léptető ciklusban, ugrások nélkül). */
+    long getGenerations();
+
+    double getGenerationsPerSecond();
+
+    /** Kiértékelt cellák másodpercenként (generációnként a rács mérete). */
+    double getCellsPerSecond();
+
+    double getStepP50Micros();
+
+    double getStepP99Micros();
+
+    /** A léptető szál foglalása generációnként (bájt); -1, ha a JVM nem méri. */
+    double getAllocatedBytesPerGeneration();
+
+    long getPaints();
+
+    double getPaintsPerSecond();
+
+    double getPaintP50Micros();
+
+    double getPaintP99Micros();
+}
@@ -0,0 +1,54 @@
+package controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR esemény generációlépésenként. Alapból ki van kapcsolva; a gameoflife.jfc beállításfájllal
+ * (vagy a JDK Mission Control sablonszerkesztőjével) kapcsolható be, és a JVM saját eseményei
+ * (GC, safepoint) mellett jelenik meg. Kikapcsolva a start null-t ad, így lépésenként
+ * csak egy jelzőolvasás marad (foglalás nélkül, az értelmezett kódban is).
+ */
+@Name("gameoflife.Step")
+@Label("Generációlépés")
+@Category({ "Game of Life", "Szimuláció" })
+@Enabled(false)
+@StackTrace(false)
+final class StepEvent extends jdk.jfr.Event {
+
+    @Label("Generáció")
+    long generation;
+
+    @Label("Szélesség")
+    int width;
+
+    @Label("Magasság")
+    int height;
+
+    @Label("Szabály")
+    String rule;
+
+    @Label("Motor")
+    String engine;
+
+    @Label("Változott csempék")
+    @Description("A lépésben változott 32x32-es csempék száma (ritka rácsnál és motoroknál -1)")
+    int changedTiles;
+
+    private static final EventType TYPE = EventType.getEventType(StepEvent.class);
+
+    /**
+     * Elindított esemény, vagy null, ha egyetlen felvétel sem kéri.
+     */
+    static StepEvent start() {
+        if (!TYPE.isEnabled()) return null;
+        StepEvent event = new StepEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,174 @@
+package model;
+
+/**
+ * Bitcsomagolt Életjáték motor: soronként long[] bithalmazokat tárol,
+ * egy long 64 cellát jelent, és egy művelettel mind a 64 cella
+ * következő állapotát számolja ki (bitpárhuzamos összeadókkal).
+ * Bármilyen S/B szabályt támogat, amit a GameOfLifeRule-ban beállítottak.
+ *
+ * A rács a cellánkénti úttal megegyezően kezelendő: a pályán kívüli cellák halottak,
+ * és csak az ALIVE állapot számít élőnek.
+ */
+public class BitLifeEngine implements StepEngine {
+
+    private int width;
+    private int height;
+    private int words;
+    private long lastWordMask;
+
+    private long[] current = new long[0];
+    private long[] next = new long[0];
+    private byte[] rowBuffer = new byte[0];
+
+    // A rács, amellyel utoljára szinkronban voltunk, és annak módosítás-számlálója
+    private Grid syncedGrid;
+    private int syncedModCount;
+
+    @Override
+    public boolean supports(SimulationRule rule) {
+        return rule instanceof GameOfLifeRule;
+    }
+
+    @Override
+    public void step(Grid grid, SimulationRule rule) {
+        if (grid != syncedGrid || grid.getModCount() != syncedModCount
+                || grid.getWidth() != width || grid.getHeight() != height) {
+            load(grid);
+        }
+        GameOfLifeRule.CompiledRule compiled = ((GameOfLifeRule) rule).compiled();
+        advance(compiled.birthMask, compiled.survivalMask);
+        store(grid);
+    }
+
+    /**
+     * Betölti a rácsot a bithalmazokba.
+     */
+    private void load(Grid grid) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        words = (width + 63) >>> 6;
+        int rest = width & 63;
+        lastWordMask = rest == 0 ? -1L : (1L << rest) - 1;
+
+        if (current.length != words * height) {
+            current = new long[words * height];
+            next = new long[words * height];
+        }
+        if (rowBuffer.length != width) {
+            rowBuffer = new byte[width];
+        }
+
+        byte alive = (byte) CellState.ALIVE.ordinal();
+        for (int y = 0; y < height; y++) {
+            grid.getRow(y, rowBuffer, 0);
+            int base = y * words;
+            for (int i = 0; i < words; i++) {
+                long word = 0;
+                int start = i << 6;
+                int end = Math.min(start + 64, width);
+                for (int x = start; x < end; x++) {
+                    if (rowBuffer[x] == alive) word |= 1L << (x - start);
+                }
+                current[base + i] = word;
+            }
+        }
+        syncedGrid = grid;
+    }
+
+    /**
+     * Visszaírja a bithalmazokat a rácsba.
+     */
+    private void store(Grid grid) {
+        byte alive = (byte) CellState.ALIVE.ordinal();
+        byte dead = (byte) CellState.DEAD.ordinal();
+        for (int y = 0; y < height; y++) {
+            int base = y * words;
+            for (int x = 0; x < width; x++) {
+                rowBuffer[x] = ((current[base + (x >>> 6)] >>> x) & 1L) != 0 ? alive : dead;
+            }
+            grid.setRow(y, rowBuffer, 0);
+        }
+        syncedModCount = grid.getModCount();
+    }
+
+    /**
+     * Egy generáció a bithalmazokon.
+     * A 8 szomszédot teljes összeadókkal adjuk össze, így szavanként
+     * négy bitsíkot kapunk (1, 2, 4, 8 helyiérték), ebből jön a szabály.
+     */
+    private void advance(int birthMask, int survivalMask) {
+        for (int y = 0; y < height; y++) {
+            int base = y * words;
+            int above = y > 0 ? base - words : -1;
+            int below = y < height - 1 ? base + words : -1;
+
+            for (int i = 0; i < words; i++) {
+                boolean hasLeft = i > 0;
+                boolean hasRight = i < words - 1;
+
+                long a = above < 0 ? 0 : current[above + i];
+                long aPrev = above < 0 || !hasLeft ? 0 : current[above + i - 1];
+                long aNext = above < 0 || !hasRight ? 0 : current[above + i + 1];
+
+                long c = current[base + i];
+                long cPrev = hasLeft ? current[base + i - 1] : 0;
+                long cNext = hasRight ? current[base + i + 1] : 0;
+
+                long b = below < 0 ? 0 : current[below + i];
+                long bPrev = below < 0 || !hasLeft ? 0 : current[below + i - 1];
+                long bNext = below < 0 || !hasRight ? 0 : current[below + i + 1];
+
+                // x-1 és x+1 szomszédok a szó bitjeihez igazítva
+                long aL = (a << 1) | (aPrev >>> 63);
+                long aR = (a >>> 1) | (aNext << 63);
+                long cL = (c << 1) | (cPrev >>> 63);
+                long cR = (c >>> 1) | (cNext << 63);
+                long bL = (b << 1) | (bPrev >>> 63);
+                long bR = (b >>> 1) | (bNext << 63);
+
+                // 1. szint: három csoport összeadása
+                long s1 = aL ^ a ^ aR;
+                long c1 = (aL & a) | (aR & (aL ^ a));
+                long s2 = cL ^ cR ^ bL;
+                long c2 = (cL & cR) | (bL & (cL ^ cR));
+                long s3 = b ^ bR;
+                long c3 = b & bR;
+
+                // egyesek helyiértéke
+                long ones = s1 ^ s2 ^ s3;
+                long c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+
+                // kettesek helyiértéke (c1, c2, c3, c4 összege)
+                long t = c1 ^ c2 ^ c3;
+                long c5 = (c1 & c2) | (c3 & (c1 ^ c2));
+                long twos = t ^ c4;
+                long c6 = t & c4;
+
+                // négyesek és nyolcasok
+                long fours = c5 ^ c6;
+                long eights = c5 & c6;
+
+                long born = 0;
+                long survive = 0;
+                for (int n = 0; n <= 8; n++) {
+                    int bit = 1 << n;
+                    if (((birthMask | survivalMask) & bit) == 0) continue;
+                    long eq = ((n & 1) != 0 ? ones : ~ones)
+                            & ((n & 2) != 0 ? twos : ~twos)
+                            & ((n & 4) != 0 ? fours : ~fours)
+                            & ((n & 8) != 0 ? eights : ~eights);
+                    if ((birthMask & bit) != 0) born |= eq;
+                    if ((survivalMask & bit) != 0) survive |= eq;
+                }
+
+                long result = (c & survive) | (~c & born);
+                if (!hasRight) result &= lastWordMask;
+                next[base + i] = result;
+            }
+        }
+
+        long[] swap = current;
+        current = next;
+        next = swap;
+    }
+}
@@ -0,0 +1,100 @@
+package model;
+
+/**
+ * Primitív long kulcsú hash tábla a ritka rács darabjaihoz (chunk).
+ * Nyílt címzés lineáris próbálással, törléskor visszatolással, így nincs szükség sírkövekre
+ * és a kulcsok nem dobozolódnak.
+ */
+final class ChunkMap {
+
+    private long[] keys;
+    private byte[][] values;
+    private int size;
+
+    ChunkMap() {
+        keys = new long[64];
+        values = new byte[64][];
+    }
+
+    private static int slotOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    byte[] get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+        }
+        return null;
+    }
+
+    void put(long key, byte[] value) {
+        if (size + 1 > keys.length - (keys.length >> 2)) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    byte[] remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        byte[] removed = values[slot];
+        if (removed == null) return null;
+
+        values[slot] = null;
+        size--;
+        // A mögötte lévő láncszemek visszatolása, hogy a keresés ne szakadjon meg
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int ideal = slotOf(keys[next], mask);
+            boolean movable = hole <= next ? (ideal <= hole || ideal > next) : (ideal <= hole && ideal > next);
+            if (movable) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                values[next] = null;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removed;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[][] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new byte[oldKeys.length << 1][];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    void clear() {
+        java.util.Arrays.fill(values, null);
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    // Bejárás résenként: a valueAt null, ha a rés üres
+    int capacity() { return keys.length; }
+    long keyAt(int slot) { return keys[slot]; }
+    byte[] valueAt(int slot) { return values[slot]; }
+}
@@ -1,30 +1,70 @@
 package model;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * A klasszikus Conway-féle Életjáték (Game of Life) szabályait megvalósító osztály.
  * Támogatja az egyedi S/B szabályokat is.
+ *
+ * A szabályok minden módosításkor egy 512 elemű átmeneti táblába fordulnak
+ * (index: a 3x3-as környezet 9 bitje), így a lépés csak tömbindexelés.
+ * A halmazok és a tábla egyetlen megváltoztathatatlan objektumban, egyetlen
+ * volatile írással cserélődnek, ezért futás közbeni szerkesztésnél sem látható félkész állapot.
+ * A futó szimuláció szabályát mégis a GameController.setRule cserélje (a rács zárja alatt), különben
+ * egy generáció csempéi a régi és az új szabállyal vegyesen számolódhatnak.
  */
 public class GameOfLifeRule implements SimulationRule {
-    
-    private Set<Integer> survivalRules;
-    private Set<Integer> birthRules;
+
+    /**
+     * A lefordított szabály: a halmazok, a szomszédszám-maszkok és az átmeneti tábla együtt.
+     */
+    static final class CompiledRule {
+        final Set<Integer> survivalRules;   // csak olvasható másolatok
+        final Set<Integer> birthRules;
+        final int survivalMask;   // n. bit: n szomszéddal életben marad
+        final int birthMask;      // n. bit: n szomszéddal megszületik
+        final byte[] table;       // 3x3 környezet (4. bit a középső cella) -> 1 ha él
+
+        CompiledRule(Set<Integer> survival, Set<Integer> birth) {
+            this.survivalRules = Collections.unmodifiableSet(new HashSet<>(survival));
+            this.birthRules = Collections.unmodifiableSet(new HashSet<>(birth));
+            this.survivalMask = toMask(survivalRules);
+            this.birthMask = toMask(birthRules);
+            this.table = new byte[512];
+            for (int index = 0; index < 512; index++) {
+                int neighbours = Integer.bitCount(index & ~CENTER_BIT);
+                int mask = (index & CENTER_BIT) != 0 ? survivalMask : birthMask;
+                table[index] = (byte) ((mask >>> neighbours) & 1);
+            }
+        }
+
+        private static int toMask(Set<Integer> counts) {
+            int mask = 0;
+            for (int n : counts) {
+                if (n >= 0 && n <= 8) mask |= 1 << n;
+            }
+            return mask;
+        }
+    }
+
+    static final int CENTER_BIT = 1 << 4;
+
+    private volatile CompiledRule compiled;
 
     public GameOfLifeRule() {
-        this.survivalRules = new HashSet<>();
-        this.birthRules = new HashSet<>();
-        
         // Alapértelmezett szabályok beállítása
-        survivalRules.add(2);
-        survivalRules.add(3);
-        birthRules.add(3);
+        Set<Integer> survival = new HashSet<>();
+        Set<Integer> birth = new HashSet<>();
+        survival.add(2);
+        survival.add(3);
+        birth.add(3);
+        this.compiled = new CompiledRule(survival, birth);
     }
 
     public void setRules(Set<Integer> survival, Set<Integer> birth) {
-        this.survivalRules = new HashSet<>(survival);
-        this.birthRules = new HashSet<>(birth);
+        this.compiled = new CompiledRule(survival, birth);
     }
     
     /**
@@ -34,8 +74,7 @@ public class GameOfLifeRule implements SimulationRule {
      * @param birth Születési szabályok stringje (pl. "3")
      */
     public void setRulesFromString(String survival, String birth) {
-        this.survivalRules = parseRuleString(survival);
-        this.birthRules = parseRuleString(birth);
+        this.compiled = new CompiledRule(parseRuleString(survival), parseRuleString(birth));
     }
     
     /**
@@ -59,13 +98,27 @@ public class GameOfLifeRule implements SimulationRule {
         }
         return rules;
     }
-    public HashSet<Integer> getSurvivalRules()
+    /**
+     * @return A túlélési szabályok csak olvasható halmaza (módosítás: setRules / setRulesFromString).
+     */
+    public Set<Integer> getSurvivalRules()
     {
-    	return (HashSet<Integer>) survivalRules;
+    	return compiled.survivalRules;
     }
-    public HashSet<Integer> getBirthRules()
+    /**
+     * @return A születési szabályok csak olvasható halmaza.
+     */
+    public Set<Integer> getBirthRules()
     {
-    	return (HashSet<Integer>) birthRules;
+    	return compiled.birthRules;
+    }
+
+    /**
+     * Az aktuális lefordított szabály. Egy generáción belül ugyanazt a példányt
+     * kell használni, hogy a szabály csak generációk között váltson.
+     */
+    CompiledRule compiled() {
+        return compiled;
     }
     
     /**
@@ -73,37 +126,89 @@ public class GameOfLifeRule implements SimulationRule {
      */
     @Override
     public CellState calculateNextState(Grid grid, int x, int y) {
-        CellState currentState = grid.getCell(x, y);
-        int aliveNeighbors = countAliveNeighbors(grid, x, y);
-
-        if (currentState == CellState.ALIVE) {
-            if (survivalRules.contains(aliveNeighbors)) {
-                return CellState.ALIVE;
-            } else {
-                return CellState.DEAD;
-            }
-        } else {
-            if (birthRules.contains(aliveNeighbors)) {
-                return CellState.ALIVE;
-            } else {
-                return CellState.DEAD;
+        byte[] table = compiled.table;
+        return table[neighbourhoodIndex(grid, x, y)] != 0 ? CellState.ALIVE : CellState.DEAD;
+    }
+
+    /**
+     * Gyors út egy téglalapra: soronként végigcsúszó 3x3-as ablak, oszloponként
+     * csak az új jobb oldali oszlopot olvassa be, és a táblából olvassa az eredményt.
+     */
+    @Override
+    public boolean stepRegion(Grid grid, int fromX, int fromY, int toX, int toY) {
+        if (!grid.isArrayBacked()) {
+            return SimulationRule.super.stepRegion(grid, fromX, fromY, toX, toY);
+        }
+        CompiledRule snapshot = compiled;
+        if (VectorSupport.isEnabled() && grid.getDefaultState() != CellState.ALIVE) {
+            return VectorSupport.kernel().stepLife(this, snapshot, grid, fromX, fromY, toX, toY);
+        }
+        return stepScalar(snapshot, grid, fromX, fromY, toX, toY);
+    }
+
+    /**
+     * A táblás skalár út; a SIMD kernel a sorok szélein és maradékán ezt hívja.
+     */
+    boolean stepScalar(CompiledRule snapshot, Grid grid, int fromX, int fromY, int toX, int toY) {
+        byte[] table = snapshot.table;
+        byte[] cells = grid.currentCells();
+        byte[] next = grid.nextCells();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int outside = grid.getDefaultState() == CellState.ALIVE ? 1 : 0;
+        byte alive = (byte) CellState.ALIVE.ordinal();
+        byte dead = (byte) CellState.DEAD.ordinal();
+
+        boolean changed = false;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * width;
+            int up = y > 0 ? row - width : -1;
+            int down = y < height - 1 ? row + width : -1;
+
+            // Bitek: 0-2 felső sor, 3-5 középső, 6-8 alsó; soron belül bal, közép, jobb
+            int index = (column(cells, up, row, down, fromX - 1, width, outside) << 1)
+                      | (column(cells, up, row, down, fromX, width, outside) << 2);
+            for (int x = fromX; x < toX; x++) {
+                index = ((index >> 1) & 0b011011011)
+                      | (column(cells, up, row, down, x + 1, width, outside) << 2);
+                byte value = table[index] != 0 ? alive : dead;
+                next[row + x] = value;
+                if (value != cells[row + x]) {
+                    changed = true;
+                }
             }
         }
+        return changed;
+    }
+
+    /**
+     * Egy oszlop három cellája bitként a 0., 3. és 6. helyen.
+     */
+    private static int column(byte[] cells, int up, int row, int down, int x, int width, int outside) {
+        if (x < 0 || x >= width) {
+            return outside * 0b001001001;
+        }
+        int alive = CellState.ALIVE.ordinal();
+        int top = up < 0 ? outside : (cells[up + x] == alive ? 1 : 0);
+        int middle = cells[row + x] == alive ? 1 : 0;
+        int bottom = down < 0 ? outside : (cells[down + x] == alive ? 1 : 0);
+        return top | (middle << 3) | (bottom << 6);
     }
 
     /*
-     * Megszámolja az élő szomszédokat
+     * A 3x3-as környezet bitmintája (sorfolytonosan, a bal felső cella a 0. bit)
      */
-    private int countAliveNeighbors(Grid grid, int x, int y) {
-        int count = 0;
+    private int neighbourhoodIndex(Grid grid, int x, int y) {
+        int index = 0;
+        int bit = 0;
         for (int i = -1; i <= 1; i++) {
             for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) continue;
                 if (grid.getCell(x + j, y + i) == CellState.ALIVE) {
-                    count++;
+                    index |= 1 << bit;
                 }
+                bit++;
             }
         }
-        return count;
+        return index;
     }
 }
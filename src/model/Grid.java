@@ -1,32 +1,108 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A szimulációs teret reprezentáló rács.
  * Tárolja a cellák állapotát és kezeli a méreteket.
+ * A cellák egyetlen, sorfolytonos byte tömbben vannak, cellánként
+ * az állapot ordinal értékével (index = y * width + x).
+ * Két puffert tart: az aktuális generációt (cells) és a következőt (nextCells),
+ * a lépés a következőbe ír, majd a kettő referenciája felcserélődik.
+ *
+ * A rács TILE_SIZE x TILE_SIZE méretű csempékre van osztva, és nyilvántartja,
+ * mely csempék változtak az előző lépés óta. Egy lépésben csak ezeket és a
+ * szomszédaikat kell kiértékelni: ha egy cella 3x3-as környezete nem változott,
+ * a cella következő állapota is ugyanaz marad. A kihagyott csempékben a két
+ * puffer tartalma mindig megegyezik, így a csere után is helyes marad.
  */
 public class Grid {
-    private List<List<CellState>> cells;
+    private static final CellState[] STATES = CellState.values();
+
+    public static final int TILE_SHIFT = 5;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    private byte[] cells;
+    private byte[] nextCells;
     private int width;
     private int height;
     private CellState defaultState;
+    private int modCount;
+
+    // Csempék: változott csempék halmaza (jelző + lista) és az aktuális lépés aktív csempéi
+    private int tileColumns;
+    private int tileRows;
+    private boolean[] tileChanged;
+    private int[] changedTiles;
+    private int changedCount;
+    private boolean[] tileActive;
+    private int[] activeTiles;
+    private int activeCount;
+    private boolean[] activeTileChanged;
+
+    // A kirajzolás számára: a legutóbbi clearDirtyTiles óta változott csempék (a lépéstől független halmaz)
+    private boolean[] tileDirty;
+    private int[] dirtyTiles;
+    private int dirtyCount;
+    // A nextCells az előző generációt tartalmazza-e (a swapBuffers óta nem írtak közvetlenül a rácsba)
+    private boolean previousValid;
+
+    // Zobrist-hash (bekapcsolva): a cellák (index, állapot) kulcsainak XOR-ja, változásonként frissítve
+    private boolean hashing;
+    private long hash;
+
+    private final boolean heapCells;
 
     public Grid(int width, int height, CellState defaultState) {
+        this(width, height, defaultState, true);
+    }
+
+    /**
+     * A leszármazottaknak: heapCells = false esetén nem foglal cellatömböt (a cellák máshol
+     * tárolódnak), de a csempék nyilvántartása ugyanúgy működik.
+     */
+    Grid(int width, int height, CellState defaultState, boolean heapCells) {
         this.width = width;
         this.height = height;
         this.defaultState = defaultState;
-        this.cells = new ArrayList<>();
+        this.heapCells = heapCells;
+        this.cells = createCells(width, height);
+        this.nextCells = createCells(width, height);
+        createTiles();
+    }
 
-        for (int y = 0; y < height; y++) {
-            List<CellState> row = new ArrayList<>();
-            for (int x = 0; x < width; x++) {
-                row.add(defaultState);
-            }
-            cells.add(row);
-        }
+    /**
+     * Létrehoz egy alapértelmezett állapotú cellákkal feltöltött tömböt.
+     */
+    private byte[] createCells(int width, int height) {
+        if (!heapCells) return null;
+        byte[] result = new byte[width * height];
+        Arrays.fill(result, (byte) defaultState.ordinal());
+        return result;
     }
+
+    /**
+     * Létrehozza a csempék nyilvántartását. Kezdetben minden csempe változottnak számít,
+     * mert a tartalmát nem a szabály állította elő.
+     */
+    private void createTiles() {
+        tileColumns = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+        tileRows = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+        int tiles = tileColumns * tileRows;
+        tileChanged = new boolean[tiles];
+        changedTiles = new int[tiles];
+        changedCount = 0;
+        tileActive = new boolean[tiles];
+        activeTiles = new int[tiles];
+        activeCount = 0;
+        activeTileChanged = new boolean[tiles];
+        tileDirty = new boolean[tiles];
+        dirtyTiles = new int[tiles];
+        dirtyCount = 0;
+        previousValid = false;
+        markAllChanged();
+    }
+
     /**
      * Visszaadja egy adott koordinátán lévő cella állapotát.
      * Ha a koordináta a rácson kívül esik, az alapértelmezett állapotot adja vissza.
@@ -38,22 +114,303 @@ public class Grid {
         if (x < 0 || x >= width || y < 0 || y >= height) {
             return defaultState;
         }
-        return cells.get(y).get(x);
+        return STATES[cells[y * width + x]];
     }
-    
+
     /**
      * Beállítja egy adott cella állapotát.
      * Csak akkor hajtódik végre, ha a koordináták érvényesek.
      */
     public void setCell(int x, int y, CellState state) {
         if (x >= 0 && x < width && y >= 0 && y < height) {
-            cells.get(y).set(x, state);
+            int index = y * width + x;
+            byte value = (byte) state.ordinal();
+            if (cells[index] != value) {
+                if (hashing) hash ^= hashKey(index, cells[index]) ^ hashKey(index, value);
+                cells[index] = value;
+                markChanged((y >> TILE_SHIFT) * tileColumns + (x >> TILE_SHIFT));
+                previousValid = false;
+            }
+            modCount++;
+        }
+    }
+
+    /**
+     * A következő generáció pufferébe írja egy cella állapotát.
+     * Az aktuális állapot (getCell) a swapBuffers hívásáig nem változik.
+     */
+    public void setNextCell(int x, int y, CellState state) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            nextCells[y * width + x] = (byte) state.ordinal();
+        }
+    }
+
+    /**
+     * Generációváltás: a következő generáció pufferéből lesz az aktuális.
+     * Csak a referenciák cserélődnek, nincs másolás és foglalás.
+     * A lépésben változottnak jelölt aktív csempék kerülnek a következő lépés változott halmazába.
+     */
+    public void swapBuffers() {
+        for (int i = 0; i < activeCount; i++) {
+            if (activeTileChanged[i]) {
+                activeTileChanged[i] = false;
+                markChanged(activeTiles[i]);
+                if (hashing) hashTileChanges(activeTiles[i]);
+            }
+        }
+        activeCount = 0;
+
+        byte[] swap = cells;
+        cells = nextCells;
+        nextCells = swap;
+        previousValid = true;
+        modCount++;
+    }
+
+    /**
+     * Egy lépés előkészítése: az előző lépés óta változott csempékből és
+     * szomszédaikból összeállítja az aktív csempék listáját, a változott halmazt pedig üríti.
+     * @return Az aktív csempék száma.
+     */
+    public int beginStep() {
+        activeCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int tile = changedTiles[i];
+            tileChanged[tile] = false;
+            int tx = tile % tileColumns;
+            int ty = tile / tileColumns;
+            for (int ny = Math.max(0, ty - 1); ny <= Math.min(tileRows - 1, ty + 1); ny++) {
+                for (int nx = Math.max(0, tx - 1); nx <= Math.min(tileColumns - 1, tx + 1); nx++) {
+                    int neighbour = ny * tileColumns + nx;
+                    if (!tileActive[neighbour]) {
+                        tileActive[neighbour] = true;
+                        activeTiles[activeCount++] = neighbour;
+                    }
+                }
+            }
+        }
+        changedCount = 0;
+        for (int i = 0; i < activeCount; i++) {
+            tileActive[activeTiles[i]] = false;
+        }
+        return activeCount;
+    }
+
+    /**
+     * Az aktuális lépés i. aktív csempéjének indexe (sor * getTileColumns() + oszlop).
+     */
+    public int getActiveTile(int i) {
+        return activeTiles[i];
+    }
+
+    /**
+     * Jelzi, hogy az i. aktív csempe tartalma a lépésben megváltozott.
+     * Különböző i értékekre párhuzamosan is hívható.
+     */
+    public void markActiveTileChanged(int i) {
+        activeTileChanged[i] = true;
+    }
+
+    /**
+     * Minden csempét változottnak jelöl (pl. szabálymódosítás után),
+     * így a következő lépés a teljes rácsot kiértékeli.
+     */
+    public void markAllChanged() {
+        for (int tile = 0; tile < tileChanged.length; tile++) {
+            markChanged(tile);
+        }
+    }
+
+    /**
+     * A cellát tartalmazó csempét változottnak jelöli (a saját tárolót használó leszármazottaknak).
+     */
+    void markCellChanged(int x, int y) {
+        markChanged((y >> TILE_SHIFT) * tileColumns + (x >> TILE_SHIFT));
+        previousValid = false;
+    }
+
+    /**
+     * Módosítás jelzése a saját tárolót használó leszármazottaknak.
+     */
+    void incrementModCount() {
+        modCount++;
+    }
+
+    private void markChanged(int tile) {
+        if (!tileChanged[tile]) {
+            tileChanged[tile] = true;
+            changedTiles[changedCount++] = tile;
+        }
+        if (!tileDirty[tile]) {
+            tileDirty[tile] = true;
+            dirtyTiles[dirtyCount++] = tile;
+        }
+    }
+
+    /**
+     * A legutóbbi clearDirtyTiles óta (lépésben, szerkesztéssel vagy motor által) változott csempék száma.
+     * A nézet ebből tudja, mit kell újrarajzolnia; a léptetés csempenyilvántartását nem befolyásolja.
+     */
+    public int getDirtyTileCount() { return dirtyCount; }
+
+    /**
+     * Az i. változott csempe indexe (sor * getTileColumns() + oszlop).
+     */
+    public int getDirtyTile(int i) { return dirtyTiles[i]; }
+
+    public void clearDirtyTiles() {
+        for (int i = 0; i < dirtyCount; i++) {
+            tileDirty[dirtyTiles[i]] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * A csempében az előző generációhoz képest változott cellák befoglaló téglalapja.
+     * Pontos eredmény csak közvetlenül a swapBuffers után, tömbös rácson adható (a nextCells
+     * ekkor még az előző generáció); egyébként a teljes csempét adja.
+     * @param bounds Kimenet: minX, minY, maxX + 1, maxY + 1 (üres, ha nincs eltérés).
+     */
+    public void getChangedBounds(int tile, int[] bounds) {
+        int fromX = (tile % tileColumns) << TILE_SHIFT;
+        int fromY = (tile / tileColumns) << TILE_SHIFT;
+        int toX = Math.min(fromX + TILE_SIZE, width);
+        int toY = Math.min(fromY + TILE_SIZE, height);
+        if (!previousValid || !isArrayBacked()) {
+            bounds[0] = fromX;
+            bounds[1] = fromY;
+            bounds[2] = toX;
+            bounds[3] = toY;
+            return;
         }
+        int minX = toX;
+        int minY = toY;
+        int maxX = fromX;
+        int maxY = fromY;
+        for (int y = fromY; y < toY; y++) {
+            int rowStart = y * width;
+            int first = Arrays.mismatch(cells, rowStart + fromX, rowStart + toX,
+                                        nextCells, rowStart + fromX, rowStart + toX);
+            if (first < 0) continue;
+            int last = toX - 1;
+            while (cells[rowStart + last] == nextCells[rowStart + last]) last--;
+            minX = Math.min(minX, fromX + first);
+            maxX = Math.max(maxX, last + 1);
+            minY = Math.min(minY, y);
+            maxY = y + 1;
+        }
+        bounds[0] = minX;
+        bounds[1] = minY;
+        bounds[2] = Math.max(minX, maxX);
+        bounds[3] = Math.max(minY, maxY);
+    }
+
+    public int getTileColumns() { return tileColumns; }
+    public int getTileRows() { return tileRows; }
+
+    /**
+     * Az előző lépés (vagy szerkesztés) óta változott csempék száma.
+     */
+    public int getChangedTileCount() { return changedCount; }
+
+    /**
+     * Egy téglalap léptetése a szabállyal a következő generáció pufferébe (lásd SimulationRule.stepRegion).
+     * A nem tömbökben tároló rácsok felülírhatják, hogy a szabályok gyors útja náluk is használható legyen.
+     * @return Változott-e legalább egy cella a téglalapban.
+     */
+    public boolean stepRegion(SimulationRule rule, int fromX, int fromY, int toX, int toY) {
+        return rule.stepRegion(this, fromX, fromY, toX, toY);
+    }
+
+    /**
+     * Közvetlenül tömbökben tárolja-e a celláit (a szabályok gyors útjai ekkor
+     * a currentCells/nextCells tömbökön dolgozhatnak).
+     */
+    boolean isArrayBacked() { return true; }
+
+    /**
+     * Az aktuális generáció tömbje (csak olvasásra, a szabályok gyors útjaihoz).
+     */
+    byte[] currentCells() { return cells; }
+
+    /**
+     * A következő generáció tömbje (a szabályok gyors útjai ide írnak).
+     */
+    byte[] nextCells() { return nextCells; }
+
+    /**
+     * Egy teljes sort másol ki a megadott tömbbe (cellánként az állapot ordinal értéke).
+     * Motorok és a kirajzolás számára, hogy ne kelljen cellánként getCell-t hívni.
+     * @param y A sor indexe.
+     * @param dest A céltömb, legalább width hosszú a megadott eltolástól.
+     * @param offset Az első cella helye a céltömbben.
+     */
+    public void getRow(int y, byte[] dest, int offset) {
+        System.arraycopy(cells, y * width, dest, offset, width);
+    }
+
+    /**
+     * Egy sor egy szakaszát másolja ki (a kirajzolás csak a látható cellákat kéri le).
+     * @param y A sor indexe.
+     * @param fromX Az első cella oszlopa.
+     * @param length A cellák száma (fromX + length legfeljebb width).
+     * @param dest A céltömb.
+     * @param offset Az első cella helye a céltömbben.
+     */
+    public void getRow(int y, int fromX, int length, byte[] dest, int offset) {
+        if (isArrayBacked()) {
+            System.arraycopy(cells, y * width + fromX, dest, offset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            dest[offset + i] = (byte) getCell(fromX + i, y).ordinal();
+        }
+    }
+
+    /**
+     * Egy teljes sort ír be a megadott tömbből (cellánként az állapot ordinal értéke).
+     * Csak azokat a csempéket jelöli változottnak, amelyekben a sor tartalma eltért.
+     * @param y A sor indexe.
+     * @param src A forrástömb, legalább width hosszú a megadott eltolástól.
+     * @param offset Az első cella helye a forrástömbben.
+     */
+    public void setRow(int y, byte[] src, int offset) {
+        int rowStart = y * width;
+        int tileBase = (y >> TILE_SHIFT) * tileColumns;
+        for (int x = 0; x < width; x += TILE_SIZE) {
+            int end = Math.min(x + TILE_SIZE, width);
+            if (Arrays.mismatch(cells, rowStart + x, rowStart + end, src, offset + x, offset + end) >= 0) {
+                markChanged(tileBase + (x >> TILE_SHIFT));
+                if (hashing) hashChanges(src, offset - rowStart, rowStart + x, rowStart + end);
+            }
+        }
+        System.arraycopy(src, offset, cells, rowStart, width);
+        previousValid = false;
+        modCount++;
+    }
+
+    /**
+     * Az ordinal értékhez tartozó állapot (a getRow által adott byte-ok visszafejtéséhez).
+     */
+    public static CellState stateOf(byte ordinal) {
+        return STATES[ordinal];
     }
 
     public int getWidth() { return width; }
     public int getHeight() { return height; }
-    
+    public CellState getDefaultState() { return defaultState; }
+
+    /**
+     * Korlátos-e a rács. A korlátlan (ritka) rácsnál a getWidth/getHeight csak a megjelenített ablak.
+     */
+    public boolean isBounded() { return true; }
+
+    /**
+     * Minden módosításnál (setCell, setRow, resize) növekvő számláló.
+     * A saját állapotot tartó motorok ebből látják, ha a rácsot közben kívülről szerkesztették.
+     */
+    public int getModCount() { return modCount; }
+
     /**
      * Átméretezi a rácsot az új szélességre és magasságra.
      * A jelenlegi tartalom törlődik, és egy üres rács jön létre!
@@ -61,13 +418,84 @@ public class Grid {
     public void resize(int newWidth, int newHeight) {
         this.width = newWidth;
         this.height = newHeight;
-        this.cells = new ArrayList<>();
-        for (int y = 0; y < height; y++) {
-            List<CellState> row = new ArrayList<>();
-            for (int x = 0; x < width; x++) {
-                row.add(defaultState);
-            }
-            cells.add(row);
+        this.cells = createCells(newWidth, newHeight);
+        this.nextCells = createCells(newWidth, newHeight);
+        createTiles();
+        if (hashing) hash = computeHash();
+        modCount++;
+    }
+
+    /**
+     * Támogatja-e a rács a hash-t (csak a heapen tárolt, korlátos rács).
+     */
+    public boolean isHashSupported() {
+        return isArrayBacked();
+    }
+
+    /**
+     * A Zobrist-hash karbantartásának be- vagy kikapcsolása. Bekapcsoláskor egyszer a teljes
+     * rácsból számolódik, utána a setCell, a setRow és a lépés csak a változott cellákat veszi figyelembe
+     * (a lépésnél a változott csempéken belül). Nem támogatott rácson hatástalan.
+     */
+    public void setHashing(boolean enabled) {
+        if (enabled && !isHashSupported()) return;
+        if (enabled && !hashing) {
+            hash = computeHash();
         }
+        hashing = enabled;
+    }
+
+    public boolean isHashing() { return hashing; }
+
+    /**
+     * Az aktuális generáció hash-e (azonos tartalmú, azonos méretű rácsokra azonos).
+     */
+    public long getHash() { return hash; }
+
+    private long computeHash() {
+        long h = 0;
+        for (int i = 0; i < cells.length; i++) {
+            h ^= hashKey(i, cells[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Az éppen lépett csempe eltéréseinek bevezetése (a swapBuffers előtt: cells a régi, nextCells az új generáció).
+     */
+    private void hashTileChanges(int tile) {
+        int fromX = (tile % tileColumns) << TILE_SHIFT;
+        int fromY = (tile / tileColumns) << TILE_SHIFT;
+        int toX = Math.min(fromX + TILE_SIZE, width);
+        int toY = Math.min(fromY + TILE_SIZE, height);
+        for (int y = fromY; y < toY; y++) {
+            hashChanges(nextCells, 0, y * width + fromX, y * width + toX);
+        }
+    }
+
+    /**
+     * A cells [from, to) tartományának és az after megfelelő (delta-val eltolt) elemeinek
+     * eltéréseit vezeti be a hash-be.
+     */
+    private void hashChanges(byte[] after, int delta, int from, int to) {
+        int i = from;
+        while (i < to) {
+            int m = Arrays.mismatch(cells, i, to, after, i + delta, to + delta);
+            if (m < 0) return;
+            i += m;
+            hash ^= hashKey(i, cells[i]) ^ hashKey(i, after[i + delta]);
+            i++;
+        }
+    }
+
+    /**
+     * A cella (index, állapot) párhoz tartozó kulcs. Véletlen táblázat helyett a splitmix64
+     * keverőfüggvénye adja, így nagy rácson sem kell cellánként kulcsokat tárolni.
+     */
+    private static long hashKey(int index, byte state) {
+        long z = (((long) index << 3) | state) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 }
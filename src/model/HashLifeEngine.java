@@ -0,0 +1,591 @@
+package model;
+
+import java.util.function.LongConsumer;
+
+/**
+ * HashLife motor Életjáték-szerű (S/B) szabályokhoz.
+ * A mintát kanonizált négyesfában tárolja (azonos részfák egyetlen csúcsot kapnak),
+ * és minden csúcshoz megjegyzi a középső negyedének jövőbeli állapotát.
+ * Így ismétlődő, szabályos mintáknál több millió generáció is gyorsan átugorható.
+ *
+ * Az advance végtelen síkon számol; az advanceWithin a korlátos rács szabályai szerint
+ * (a rácson kívül minden cella halott), így az eredmény megegyezik a lépésenkénti futással.
+ * Ritka rácsnál az ablak a teljes int koordináta-tartomány.
+ * B0-t tartalmazó szabály nem támogatott (az üres tér minden lépésben megváltozna).
+ *
+ * A léptetés a hívó szál megszakításakor (interrupt) a legutóbbi teljes lépés után leáll;
+ * a getGeneration ekkor a ténylegesen megtett generációk számát adja.
+ */
+public class HashLifeEngine {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    /**
+     * A négyesfa egy csúcsa. 0. szinten egyetlen cella, k. szinten 2^k x 2^k cella.
+     */
+    private static final class Node {
+        final int level;
+        final Node nw, ne, sw, se;
+        final long population;
+        final long id;
+        final int hash;
+        Node next;     // láncolás a hash táblában
+        Node result;   // a középső negyed állapota 2^(level-2) generáció múlva (teljes sebesség)
+        Node slowResult;   // ugyanez 2^slowLog generáció múlva, kisebb lépésnél
+        int slowLog;
+        int gcMark;
+
+        Node(int level, Node nw, Node ne, Node sw, Node se, long population, long id, int hash) {
+            this.level = level;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = population;
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+
+    private final int maxNodes;
+    private final Node deadLeaf;
+    private final Node aliveLeaf;
+    private Node[] emptyNodes = new Node[0];
+
+    private Node[] table = new Node[1 << 16];
+    private int nodeCount;
+    private long nextId = 2;
+    private int gcEpoch;
+
+    private int birthMask;
+    private int survivalMask;
+    private int stepLog = -1;
+
+    private Node root;
+    private long originX;
+    private long originY;
+    private long generation;
+    private LongConsumer progressListener;
+
+    public HashLifeEngine() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param maxNodes A csúcs-gyorsítótár felső korlátja; efölött a lépések között szemétgyűjtés fut.
+     */
+    public HashLifeEngine(int maxNodes) {
+        this.maxNodes = maxNodes;
+        this.deadLeaf = new Node(0, null, null, null, null, 0, 0, 0);
+        this.aliveLeaf = new Node(0, null, null, null, null, 1, 1, 1);
+        this.root = emptyNode(3);
+    }
+
+    /**
+     * Beállítja a szabályt. Szabályváltáskor a megjegyzett eredmények érvénytelenné válnak.
+     * @throws IllegalArgumentException ha a szabály születést ír elő 0 szomszéd esetén.
+     */
+    public void setRule(GameOfLifeRule rule) {
+        GameOfLifeRule.CompiledRule compiled = rule.compiled();
+        int birth = compiled.birthMask;
+        int survival = compiled.survivalMask;
+        if ((birth & 1) != 0) {
+            throw new IllegalArgumentException("A HashLife motor nem támogatja a B0 szabályt!");
+        }
+        if (birth != birthMask || survival != survivalMask) {
+            birthMask = birth;
+            survivalMask = survival;
+            clearResults();
+        }
+    }
+
+    /**
+     * A léptetés közben minden lépés után megkapja az addig megtett generációk számát (lehet null).
+     */
+    public void setProgressListener(LongConsumer listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Betölti a rács élő celláit. A rács (0,0) cellája lesz a sík (0,0) pontja.
+     * Ritka rácsnál a teljes tartalom betöltődik, a cellák a saját koordinátáikra kerülnek.
+     */
+    public void load(Grid grid) {
+        if (grid instanceof SparseGrid) {
+            loadSparse((SparseGrid) grid);
+            return;
+        }
+        int size = Math.max(grid.getWidth(), grid.getHeight());
+        int level = 3;
+        while ((1L << level) < size) level++;
+
+        byte[][] rows = new byte[grid.getHeight()][grid.getWidth()];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            grid.getRow(y, rows[y], 0);
+        }
+        root = build(rows, 0, 0, level);
+        originX = 0;
+        originY = 0;
+        generation = 0;
+    }
+
+    /**
+     * A ritka rács darabjaiból épít fát: minden darab egy 6. szintű csúcs, a darabok
+     * befoglaló téglalapját lefedő (a bal felső darabhoz igazított) fában a helyére kerül.
+     */
+    private void loadSparse(SparseGrid grid) {
+        int[] chunks = grid.getChunkCoordinates();
+        generation = 0;
+        originX = 0;
+        originY = 0;
+        root = emptyNode(3);
+        if (chunks.length == 0) return;
+
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (int i = 0; i < chunks.length; i += 2) {
+            minX = Math.min(minX, chunks[i]);
+            maxX = Math.max(maxX, chunks[i]);
+            minY = Math.min(minY, chunks[i + 1]);
+            maxY = Math.max(maxY, chunks[i + 1]);
+        }
+        long span = Math.max(maxX - minX, maxY - minY) + 1;
+        int level = SparseGrid.CHUNK_SHIFT;
+        while ((1L << (level - SparseGrid.CHUNK_SHIFT)) < span) level++;
+
+        Node tree = emptyNode(level);
+        byte[][] rows = new byte[SparseGrid.CHUNK_SIZE][SparseGrid.CHUNK_SIZE];
+        for (int i = 0; i < chunks.length; i += 2) {
+            int baseX = chunks[i] << SparseGrid.CHUNK_SHIFT;
+            int baseY = chunks[i + 1] << SparseGrid.CHUNK_SHIFT;
+            for (int y = 0; y < SparseGrid.CHUNK_SIZE; y++) {
+                grid.getRow(baseY + y, baseX, SparseGrid.CHUNK_SIZE, rows[y], 0);
+            }
+            Node part = build(rows, 0, 0, SparseGrid.CHUNK_SHIFT);
+            if (part.population > 0) {
+                tree = place(tree, part, chunks[i] - minX, chunks[i + 1] - minY);
+            }
+        }
+        root = tree;
+        originX = minX << SparseGrid.CHUNK_SHIFT;
+        originY = minY << SparseGrid.CHUNK_SHIFT;
+    }
+
+    /**
+     * A csúcs a part-tal a (x, y) helyen (part méretű egységekben) kicserélve.
+     */
+    private Node place(Node n, Node part, long x, long y) {
+        if (n.level == part.level) return part;
+        long half = 1L << (n.level - part.level - 1);
+        long innerX = x >= half ? x - half : x;
+        long innerY = y >= half ? y - half : y;
+        if (y < half) {
+            return x < half ? node(place(n.nw, part, innerX, innerY), n.ne, n.sw, n.se)
+                            : node(n.nw, place(n.ne, part, innerX, innerY), n.sw, n.se);
+        }
+        return x < half ? node(n.nw, n.ne, place(n.sw, part, innerX, innerY), n.se)
+                        : node(n.nw, n.ne, n.sw, place(n.se, part, innerX, innerY));
+    }
+
+    private Node build(byte[][] rows, int x, int y, int level) {
+        if (y >= rows.length || x >= (rows.length == 0 ? 0 : rows[0].length)) {
+            return emptyNode(level);
+        }
+        if (level == 0) {
+            return rows[y][x] == CellState.ALIVE.ordinal() ? aliveLeaf : deadLeaf;
+        }
+        int half = 1 << (level - 1);
+        return node(build(rows, x, y, level - 1), build(rows, x + half, y, level - 1),
+                    build(rows, x, y + half, level - 1), build(rows, x + half, y + half, level - 1));
+    }
+
+    /**
+     * Visszaírja az aktuális állapotot a rácsba (a rács ablakán, ritka rácsnál az int tartományon
+     * kívüli cellák elvesznek).
+     */
+    public void store(Grid grid) {
+        if (grid instanceof SparseGrid) {
+            ((SparseGrid) grid).clear();
+            paint(grid, root, originX, originY, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                  Integer.MAX_VALUE + 1L, Integer.MAX_VALUE + 1L);
+            return;
+        }
+        byte[] deadRow = new byte[grid.getWidth()];
+        java.util.Arrays.fill(deadRow, (byte) CellState.DEAD.ordinal());
+        for (int y = 0; y < grid.getHeight(); y++) {
+            grid.setRow(y, deadRow, 0);
+        }
+        paint(grid, root, originX, originY, 0, 0, grid.getWidth(), grid.getHeight());
+    }
+
+    /**
+     * A csúcs élő celláinak beírása a [left, right) x [top, bottom) ablakba eső részen.
+     */
+    private void paint(Grid grid, Node node, long x, long y, long left, long top, long right, long bottom) {
+        if (node.population == 0) return;
+        long size = 1L << node.level;
+        if (x >= right || y >= bottom || x + size <= left || y + size <= top) return;
+        if (node.level == 0) {
+            grid.setCell((int) x, (int) y, CellState.ALIVE);
+            return;
+        }
+        long half = size >> 1;
+        paint(grid, node.nw, x, y, left, top, right, bottom);
+        paint(grid, node.ne, x + half, y, left, top, right, bottom);
+        paint(grid, node.sw, x, y + half, left, top, right, bottom);
+        paint(grid, node.se, x + half, y + half, left, top, right, bottom);
+    }
+
+    /**
+     * N generációval lépteti a mintát. N-t kettő-hatványokra bontja,
+     * és mindegyiket egyetlen négyesfa-lépéssel teszi meg.
+     */
+    public void advance(long generations) {
+        long remaining = generations;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            int j = Long.numberOfTrailingZeros(remaining);
+            stepPowerOfTwo(j);
+            remaining -= 1L << j;
+            reportProgress();
+        }
+    }
+
+    /**
+     * N generációval lépteti a mintát a width x height méretű rácson, a rácson kívüli cellákat halottnak véve.
+     * Amíg a minta legalább 2^j cellára van a rács szélétől, 2^j generációt egyben léphet (a minta
+     * generációnként legfeljebb egy cellát nő); a szélen generációnként lép, és levágja a rácson kívül
+     * született cellákat. Ha a szélen álló minta egy vagy két lépés után ismétlődik, a teljes periódusokat kihagyja.
+     */
+    public void advanceWithin(long generations, int width, int height) {
+        advanceWithin(generations, 0, 0, width, height);
+    }
+
+    /**
+     * Mint az advanceWithin, a (left, top) bal felső sarkú width x height ablakon.
+     */
+    public void advanceWithin(long generations, long left, long top, long width, long height) {
+        root = crop(root, originX - left, originY - top, width, height);
+        long remaining = generations;
+        Node twoBack = null;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            if (root.population == 0) {
+                generation += remaining;
+                return;
+            }
+            long margin = margin(left, top, width, height);
+            if (margin > 0) {
+                int j = 63 - Long.numberOfLeadingZeros(Math.min(margin, remaining));
+                stepPowerOfTwo(j);
+                remaining -= 1L << j;
+                twoBack = null;
+                reportProgress();
+                continue;
+            }
+            Node before = root;
+            stepPowerOfTwo(0);
+            root = crop(root, originX - left, originY - top, width, height);
+            remaining--;
+            reportProgress();
+            if (sameAs(before)) {
+                generation += remaining;
+                return;
+            }
+            if (twoBack != null && sameAs(twoBack)) {
+                generation += remaining - remaining % 2;
+                remaining %= 2;
+            }
+            twoBack = before;
+        }
+    }
+
+    private void reportProgress() {
+        if (progressListener != null) progressListener.accept(generation);
+    }
+
+    /**
+     * A legkisebb távolság az élő cellák befoglaló téglalapja és az ablak széle között.
+     */
+    private long margin(long left, long top, long width, long height) {
+        long minX = originX + extent(root, false, false) - left;
+        long maxX = originX + extent(root, false, true) - left;
+        long minY = originY + extent(root, true, false) - top;
+        long maxY = originY + extent(root, true, true) - top;
+        return Math.min(Math.min(minX, minY), Math.min(width - 1 - maxX, height - 1 - maxY));
+    }
+
+    /**
+     * A csúcs szélső élő cellájának koordinátája a csúcson belül (függőlegesen vagy vízszintesen,
+     * a kisebb vagy a nagyobb oldalon). A csúcs nem lehet üres.
+     */
+    private long extent(Node n, boolean vertical, boolean high) {
+        if (n.level == 0) return 0;
+        long half = 1L << (n.level - 1);
+        Node low1 = n.nw, low2 = vertical ? n.ne : n.sw;
+        Node high1 = vertical ? n.sw : n.ne, high2 = n.se;
+        Node first1 = high ? high1 : low1, first2 = high ? high2 : low2;
+        Node second1 = high ? low1 : high1, second2 = high ? low2 : high2;
+        long firstOffset = high ? half : 0;
+        long secondOffset = high ? 0 : half;
+
+        if (first1.population + first2.population > 0) {
+            return firstOffset + extremum(first1, first2, vertical, high);
+        }
+        return secondOffset + extremum(second1, second2, vertical, high);
+    }
+
+    private long extremum(Node a, Node b, boolean vertical, boolean high) {
+        if (a.population == 0) return extent(b, vertical, high);
+        if (b.population == 0) return extent(a, vertical, high);
+        long ea = extent(a, vertical, high);
+        long eb = extent(b, vertical, high);
+        return high ? Math.max(ea, eb) : Math.min(ea, eb);
+    }
+
+    /**
+     * A (x, y) pozíciójú csúcs a width x height ablakon kívüli élő cellák nélkül.
+     */
+    private Node crop(Node n, long x, long y, long width, long height) {
+        if (n.population == 0) return n;
+        long size = 1L << n.level;
+        if (x >= 0 && y >= 0 && x + size <= width && y + size <= height) return n;
+        if (x >= width || y >= height || x + size <= 0 || y + size <= 0) return emptyNode(n.level);
+        long half = size >> 1;
+        return node(crop(n.nw, x, y, width, height), crop(n.ne, x + half, y, width, height),
+                    crop(n.sw, x, y + half, width, height), crop(n.se, x + half, y + half, width, height));
+    }
+
+    /**
+     * Ugyanazt a mintát írja-e le a gyökér, mint a korábbi gyökér. A gyökér középpontja
+     * a bővítés és a lépés során nem mozdul, ezért azonos szintre bővítve a két csúcs összevethető.
+     */
+    private boolean sameAs(Node before) {
+        Node a = before;
+        Node b = root;
+        while (a.level < b.level) a = surround(a);
+        while (b.level < a.level) b = surround(b);
+        return a == b;
+    }
+
+    private Node surround(Node n) {
+        Node e = emptyNode(n.level - 1);
+        return node(node(e, e, e, n.nw), node(e, e, n.ne, e), node(e, n.sw, e, e), node(n.se, e, e, e));
+    }
+
+    private void stepPowerOfTwo(int j) {
+        stepLog = j;
+        // A mintának a középső negyedben kell lennie: a 2^j lépésnyi növekedés után is a visszaadott
+        // középső felében marad (a szint legalább j+3, így 2^j legfeljebb a csúcs nyolcada)
+        while (root.level < j + 3 || !isCentered(root)) {
+            expand();
+        }
+        long quarter = 1L << (root.level - 2);
+        root = nextGeneration(root);
+        originX += quarter;
+        originY += quarter;
+        generation += 1L << j;
+
+        if (nodeCount > maxNodes) {
+            collectGarbage();
+        }
+    }
+
+    private boolean isCentered(Node n) {
+        return n.nw.population == n.nw.se.se.population
+                && n.ne.population == n.ne.sw.sw.population
+                && n.sw.population == n.sw.ne.ne.population
+                && n.se.population == n.se.nw.nw.population;
+    }
+
+    /**
+     * A gyökeret egy szinttel nagyobb, üres kerettel körülvett csúcsra cseréli.
+     */
+    private void expand() {
+        long shift = 1L << (root.level - 1);
+        root = surround(root);
+        originX -= shift;
+        originY -= shift;
+    }
+
+    /**
+     * A csúcs középső (level-1 szintű) negyedének állapota 2^stepLog generáció múlva.
+     */
+    private Node nextGeneration(Node n) {
+        boolean fullSpeed = stepLog >= n.level - 2;
+        if (fullSpeed) {
+            if (n.result != null) return n.result;
+        } else if (n.slowResult != null && n.slowLog == stepLog) {
+            return n.slowResult;
+        }
+
+        Node result;
+        if (n.level == 2) {
+            result = baseCase(n);
+        } else {
+            Node n00 = n.nw, n02 = n.ne, n20 = n.sw, n22 = n.se;
+            Node n01 = node(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw);
+            Node n10 = node(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne);
+            Node n11 = node(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+            Node n12 = node(n.ne.sw, n.ne.se, n.se.nw, n.se.ne);
+            Node n21 = node(n.sw.ne, n.se.nw, n.sw.se, n.se.sw);
+
+            Node r00, r01, r02, r10, r11, r12, r20, r21, r22;
+            if (fullSpeed) {
+                // Teljes sebesség: két fél lépés
+                r00 = nextGeneration(n00); r01 = nextGeneration(n01); r02 = nextGeneration(n02);
+                r10 = nextGeneration(n10); r11 = nextGeneration(n11); r12 = nextGeneration(n12);
+                r20 = nextGeneration(n20); r21 = nextGeneration(n21); r22 = nextGeneration(n22);
+            } else {
+                // Kisebb lépés: először csak a középső részeket vesszük
+                r00 = center(n00); r01 = center(n01); r02 = center(n02);
+                r10 = center(n10); r11 = center(n11); r12 = center(n12);
+                r20 = center(n20); r21 = center(n21); r22 = center(n22);
+            }
+            result = node(nextGeneration(node(r00, r01, r10, r11)),
+                          nextGeneration(node(r01, r02, r11, r12)),
+                          nextGeneration(node(r10, r11, r20, r21)),
+                          nextGeneration(node(r11, r12, r21, r22)));
+        }
+        if (fullSpeed) {
+            n.result = result;
+        } else {
+            // A lassabb lépés eredménye a lépésmérettel együtt kerül a memóba; a teljes sebességű megmarad
+            n.slowResult = result;
+            n.slowLog = stepLog;
+        }
+        return result;
+    }
+
+    private Node center(Node n) {
+        return node(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /**
+     * 4x4-es csúcs: a középső 2x2 cella egy generációval később.
+     */
+    private Node baseCase(Node n) {
+        int bits = 0;
+        Node[] quads = { n.nw, n.ne, n.sw, n.se };
+        for (int q = 0; q < 4; q++) {
+            Node quad = quads[q];
+            int ox = (q & 1) * 2;
+            int oy = (q >> 1) * 2;
+            if (quad.nw.population != 0) bits |= 1 << (oy * 4 + ox);
+            if (quad.ne.population != 0) bits |= 1 << (oy * 4 + ox + 1);
+            if (quad.sw.population != 0) bits |= 1 << ((oy + 1) * 4 + ox);
+            if (quad.se.population != 0) bits |= 1 << ((oy + 1) * 4 + ox + 1);
+        }
+        return node(cellAfter(bits, 1, 1), cellAfter(bits, 2, 1), cellAfter(bits, 1, 2), cellAfter(bits, 2, 2));
+    }
+
+    private Node cellAfter(int bits, int x, int y) {
+        int count = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if ((dx != 0 || dy != 0) && (bits & (1 << ((y + dy) * 4 + x + dx))) != 0) count++;
+            }
+        }
+        boolean alive = (bits & (1 << (y * 4 + x))) != 0;
+        int mask = alive ? survivalMask : birthMask;
+        return (mask & (1 << count)) != 0 ? aliveLeaf : deadLeaf;
+    }
+
+    /**
+     * A kanonikus csúcs a megadott gyerekekkel (ha még nincs, létrehozza).
+     */
+    private Node node(Node nw, Node ne, Node sw, Node se) {
+        int hash = hash(nw, ne, sw, se);
+        int index = hash & (table.length - 1);
+        for (Node n = table[index]; n != null; n = n.next) {
+            if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) return n;
+        }
+        Node n = new Node(nw.level + 1, nw, ne, sw, se,
+                nw.population + ne.population + sw.population + se.population, nextId++, hash);
+        insert(n);
+        return n;
+    }
+
+    private static int hash(Node nw, Node ne, Node sw, Node se) {
+        long h = nw.id * 0x9E3779B97F4A7C15L;
+        h = (h ^ ne.id) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ sw.id) * 0x165667B19E3779F9L;
+        h = (h ^ se.id) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void insert(Node n) {
+        if (nodeCount + 1 > table.length - (table.length >> 2)) {
+            rehash(table.length << 1);
+        }
+        int index = n.hash & (table.length - 1);
+        n.next = table[index];
+        table[index] = n;
+        nodeCount++;
+    }
+
+    private void rehash(int capacity) {
+        Node[] old = table;
+        table = new Node[capacity];
+        for (Node head : old) {
+            Node n = head;
+            while (n != null) {
+                Node next = n.next;
+                int index = n.hash & (capacity - 1);
+                n.next = table[index];
+                table[index] = n;
+                n = next;
+            }
+        }
+    }
+
+    private Node emptyNode(int level) {
+        if (level >= emptyNodes.length) {
+            emptyNodes = java.util.Arrays.copyOf(emptyNodes, level + 1);
+        }
+        if (emptyNodes[level] == null) {
+            emptyNodes[level] = level == 0 ? deadLeaf : node(emptyNode(level - 1), emptyNode(level - 1),
+                                                             emptyNode(level - 1), emptyNode(level - 1));
+        }
+        return emptyNodes[level];
+    }
+
+    private void clearResults() {
+        for (Node head : table) {
+            for (Node n = head; n != null; n = n.next) {
+                n.result = null;
+                n.slowResult = null;
+            }
+        }
+    }
+
+    /**
+     * Szemétgyűjtés: csak a gyökérből elérhető csúcsok maradnak a táblában,
+     * a megjegyzett eredmények törlődnek.
+     */
+    private void collectGarbage() {
+        gcEpoch++;
+        Node[] old = table;
+        table = new Node[old.length];
+        nodeCount = 0;
+        emptyNodes = new Node[0];
+        for (Node head : old) {
+            for (Node n = head; n != null; n = n.next) {
+                n.result = null;
+                n.slowResult = null;
+            }
+        }
+        keep(root);
+    }
+
+    private void keep(Node n) {
+        if (n.level == 0 || n.gcMark == gcEpoch) return;
+        n.gcMark = gcEpoch;
+        keep(n.nw);
+        keep(n.ne);
+        keep(n.sw);
+        keep(n.se);
+        insert(n);
+    }
+
+    public long getGeneration() { return generation; }
+    public long getPopulation() { return root.population; }
+    public int getNodeCount() { return nodeCount; }
+}
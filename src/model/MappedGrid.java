@@ -0,0 +1,360 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Heapen kívüli, memóriába képezett fájlban tárolt rács a heapnél nagyobb pályákhoz
+ * (pl. 65536 x 65536). A két generáció egy-egy sík a fájlban, a síkok legfeljebb 1 GB-os,
+ * soronként igazított szeletekben vannak leképezve (egy ByteBuffer 2 GB alatt marad).
+ *
+ * Fájlszerkezet: 4096 byte fejléc ("GOLM", verzió, alapállapot, aktuális sík, szélesség,
+ * magasság, 32 byte szabad metaadat a mentést végző rétegnek), utána a 0. és az 1. sík.
+ * A cellák az alapállapothoz képest XOR-olva tárolódnak, így egy frissen létrehozott
+ * (ritka) fájl írás nélkül is csupa alapállapotú cellát tartalmaz.
+ *
+ * A csempék nyilvántartása a Grid-ben marad. A lépésnél egy csempét a szomszédos
+ * sávval együtt egy kis heap rácsba másolunk, és azon fut a szabály gyors útja.
+ * Fájlhoz kötött rácsnál a mentés csak flush: a fejlécbe kerül az aktuális sík, és a
+ * leképezett lapok a lemezre íródnak. Ideiglenes rácsnál a fájl bezáráskor törlődik.
+ */
+public class MappedGrid extends Grid implements AutoCloseable {
+
+    public static final int METADATA_SIZE = 32;
+
+    private static final byte[] MAGIC = { 'G', 'O', 'L', 'M' };
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    private static final int METADATA_OFFSET = 16;
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final Path file;
+    private final boolean temporary;
+    private final byte defaultValue;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private final ByteBuffer[][] planes = new ByteBuffer[2][];
+    private int current;
+    private int rowsPerSegment;
+    private byte[] rowBuffer = new byte[0];
+
+    // Szálanként egy csempényi (plusz szegély) munkarács a lépéshez
+    private final ThreadLocal<Grid> window;
+
+    private MappedGrid(Path file, boolean temporary, FileChannel channel,
+                       int width, int height, CellState defaultState) {
+        super(width, height, defaultState, false);
+        this.file = file;
+        this.temporary = temporary;
+        this.channel = channel;
+        this.defaultValue = (byte) defaultState.ordinal();
+        this.window = ThreadLocal.withInitial(() -> new Grid(TILE_SIZE + 2, TILE_SIZE + 2, defaultState));
+    }
+
+    /**
+     * Új, fájlhoz kötött rács (a fájl felülíródik).
+     */
+    public static MappedGrid create(Path file, int width, int height, CellState defaultState) throws IOException {
+        return create(file, false, width, height, defaultState);
+    }
+
+    /**
+     * Új rács egy ideiglenes fájlban, ami bezáráskor (vagy a program végén) törlődik.
+     */
+    public static MappedGrid createTemporary(int width, int height, CellState defaultState) throws IOException {
+        Path file = Files.createTempFile("grid", ".golm");
+        file.toFile().deleteOnExit();
+        return create(file, true, width, height, defaultState);
+    }
+
+    private static MappedGrid create(Path file, boolean temporary, int width, int height,
+                                     CellState defaultState) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedGrid grid = new MappedGrid(file, temporary, channel, width, height, defaultState);
+            grid.allocate();
+            return grid;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Egy korábban létrehozott rácsfájl megnyitása (másolás nélkül, csak leképezés).
+     */
+    public static MappedGrid open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer head = ByteBuffer.allocate(METADATA_OFFSET);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // a rövid olvasásokat összegyűjtjük
+            }
+            head.flip();
+            if (head.remaining() < METADATA_OFFSET || !isMappedHeader(head)) {
+                throw new IOException("Nem leképezett rácsfájl");
+            }
+            int version = head.get(4);
+            int defaultOrdinal = head.get(5);
+            int currentPlane = head.get(6);
+            int width = head.getInt(8);
+            int height = head.getInt(12);
+            if (version != VERSION) {
+                throw new IOException("Nem támogatott rácsfájl-verzió: " + version);
+            }
+            if (defaultOrdinal < 0 || defaultOrdinal >= CellState.values().length
+                    || width <= 0 || height <= 0 || (currentPlane & ~1) != 0
+                    || channel.size() != HEADER_SIZE + 2L * width * height) {
+                throw new IOException("Sérült rácsfájl");
+            }
+            MappedGrid grid = new MappedGrid(file, false, channel, width, height, stateOf((byte) defaultOrdinal));
+            grid.map();
+            grid.current = currentPlane;
+            return grid;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A fájl eleje (legalább 4 byte) leképezett rács fejléce-e.
+     */
+    public static boolean isMappedHeader(ByteBuffer head) {
+        if (head.remaining() < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head.get(head.position() + i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A fájl méretre állítása (ritka fájlként, írás nélkül), a fejléc kitöltése és a leképezés.
+     */
+    private void allocate() throws IOException {
+        long size = HEADER_SIZE + 2L * getWidth() * getHeight();
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        map();
+        header.put(0, MAGIC);
+        header.put(4, (byte) VERSION);
+        header.put(5, defaultValue);
+        header.put(6, (byte) 0);
+        header.putInt(8, getWidth());
+        header.putInt(12, getHeight());
+        current = 0;
+    }
+
+    private void map() throws IOException {
+        int width = getWidth();
+        int height = getHeight();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        rowsPerSegment = (int) Math.max(1, Math.min(height, SEGMENT_BYTES / width));
+        int segments = (height + rowsPerSegment - 1) / rowsPerSegment;
+        long planeSize = (long) width * height;
+        for (int plane = 0; plane < 2; plane++) {
+            planes[plane] = new ByteBuffer[segments];
+            for (int s = 0; s < segments; s++) {
+                int rows = Math.min(rowsPerSegment, height - s * rowsPerSegment);
+                long offset = HEADER_SIZE + plane * planeSize + (long) s * rowsPerSegment * width;
+                planes[plane][s] = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) rows * width);
+            }
+        }
+        if (rowBuffer.length != width) {
+            rowBuffer = new byte[width];
+        }
+    }
+
+    private ByteBuffer segment(int plane, int y) {
+        return planes[plane][y / rowsPerSegment];
+    }
+
+    private int offset(int x, int y) {
+        return (y % rowsPerSegment) * getWidth() + x;
+    }
+
+    @Override
+    public CellState getCell(int x, int y) {
+        if (x < 0 || x >= getWidth() || y < 0 || y >= getHeight()) {
+            return getDefaultState();
+        }
+        return stateOf((byte) (segment(current, y).get(offset(x, y)) ^ defaultValue));
+    }
+
+    @Override
+    public void setCell(int x, int y, CellState state) {
+        if (x >= 0 && x < getWidth() && y >= 0 && y < getHeight()) {
+            ByteBuffer segment = segment(current, y);
+            int index = offset(x, y);
+            byte value = (byte) (state.ordinal() ^ defaultValue);
+            if (segment.get(index) != value) {
+                segment.put(index, value);
+                markCellChanged(x, y);
+            }
+            incrementModCount();
+        }
+    }
+
+    @Override
+    public void setNextCell(int x, int y, CellState state) {
+        if (x >= 0 && x < getWidth() && y >= 0 && y < getHeight()) {
+            segment(current ^ 1, y).put(offset(x, y), (byte) (state.ordinal() ^ defaultValue));
+        }
+    }
+
+    @Override
+    public void swapBuffers() {
+        super.swapBuffers();
+        current ^= 1;
+    }
+
+    @Override
+    public void getRow(int y, byte[] dest, int offset) {
+        segment(current, y).get(offset(0, y), dest, offset, getWidth());
+        xorDefault(dest, offset, getWidth());
+    }
+
+    @Override
+    public void getRow(int y, int fromX, int length, byte[] dest, int offset) {
+        segment(current, y).get(offset(fromX, y), dest, offset, length);
+        xorDefault(dest, offset, length);
+    }
+
+    @Override
+    public void setRow(int y, byte[] src, int offset) {
+        int width = getWidth();
+        ByteBuffer segment = segment(current, y);
+        int rowStart = offset(0, y);
+        segment.get(rowStart, rowBuffer, 0, width);
+        xorDefault(rowBuffer, 0, width);
+        for (int x = 0; x < width; x += TILE_SIZE) {
+            int end = Math.min(x + TILE_SIZE, width);
+            if (Arrays.mismatch(rowBuffer, x, end, src, offset + x, offset + end) >= 0) {
+                markCellChanged(x, y);
+            }
+        }
+        System.arraycopy(src, offset, rowBuffer, 0, width);
+        xorDefault(rowBuffer, 0, width);
+        segment.put(rowStart, rowBuffer, 0, width);
+        incrementModCount();
+    }
+
+    private void xorDefault(byte[] array, int offset, int length) {
+        if (defaultValue == 0) return;
+        for (int i = offset; i < offset + length; i++) {
+            array[i] ^= defaultValue;
+        }
+    }
+
+    /**
+     * A csempét a szomszédos egy cellás sávval együtt a szál munkarácsába másolja,
+     * azon futtatja a szabály (tömbös) gyors útját, és az eredményt a következő síkba írja.
+     */
+    @Override
+    public boolean stepRegion(SimulationRule rule, int fromX, int fromY, int toX, int toY) {
+        int w = toX - fromX;
+        int h = toY - fromY;
+        Grid work = window.get();
+        int workWidth = work.getWidth();
+        if (w + 2 > workWidth || h + 2 > work.getHeight()) {
+            return rule.stepRegion(this, fromX, fromY, toX, toY);
+        }
+
+        int width = getWidth();
+        int height = getHeight();
+        byte dv = defaultValue;
+        byte[] cells = work.currentCells();
+        for (int r = 0; r < h + 2; r++) {
+            int y = fromY - 1 + r;
+            int base = r * workWidth;
+            if (y < 0 || y >= height) {
+                Arrays.fill(cells, base, base + w + 2, dv);
+                continue;
+            }
+            int left = Math.max(0, fromX - 1);
+            int right = Math.min(width, toX + 1);
+            if (fromX - 1 < 0) cells[base] = dv;
+            if (toX + 1 > width) cells[base + w + 1] = dv;
+            int target = base + (left - (fromX - 1));
+            segment(current, y).get(offset(left, y), cells, target, right - left);
+            xorDefault(cells, target, right - left);
+        }
+
+        boolean changed = rule.stepRegion(work, 1, 1, w + 1, h + 1);
+
+        byte[] next = work.nextCells();
+        for (int r = 1; r <= h; r++) {
+            int y = fromY + r - 1;
+            int source = r * workWidth + 1;
+            xorDefault(next, source, w);
+            segment(current ^ 1, y).put(offset(fromX, y), next, source, w);
+        }
+        return changed;
+    }
+
+    @Override
+    boolean isArrayBacked() { return false; }
+
+    /**
+     * Átméretezés: a tartalom törlődik, a fájl az új méretre áll.
+     */
+    @Override
+    public void resize(int newWidth, int newHeight) {
+        super.resize(newWidth, newHeight);
+        try {
+            allocate();
+        } catch (IOException e) {
+            throw new IllegalStateException("A rácsfájl nem méretezhető át: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A fejléc szabadon használható része (pl. a szabály a mentést végző rétegnek).
+     * A visszaadott buffer a fejlécre mutat; a változás a következő flush-sal kerül lemezre.
+     */
+    public ByteBuffer metadata() {
+        return header.slice(METADATA_OFFSET, METADATA_SIZE);
+    }
+
+    /**
+     * A rácsfájl (ideiglenes rácsnál is létezik, amíg nincs bezárva).
+     */
+    public Path getFile() { return file; }
+
+    public boolean isTemporary() { return temporary; }
+
+    /**
+     * Lemezre írja az aktuális generációt: előbb a sík lapjait, utána a fejlécet az aktuális sík sorszámával.
+     * Lépések között hívandó (nem párhuzamosan a léptetéssel).
+     */
+    public void flush() {
+        for (ByteBuffer segment : planes[current]) {
+            ((MappedByteBuffer) segment).force();
+        }
+        header.put(6, (byte) current);
+        header.force();
+    }
+
+    /**
+     * Flush után elengedi a fájlt; ideiglenes rácsnál törli is. A leképezett memóriát a GC szabadítja fel.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        if (!temporary) {
+            flush();
+        }
+        channel.close();
+        channel = null;
+        if (temporary) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
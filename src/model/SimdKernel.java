@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * A SIMD lépéskernel belépési pontjai. A megvalósítás (VectorKernels) a src-vector mappában van,
+ * és csak a jdk.incubator.vector modullal fordítható; a szabályok ezen az interfészen át hívják,
+ * így az src fordításához nem kell a modul.
+ */
+interface SimdKernel {
+
+    /**
+     * Életjáték egy téglalapra, a megadott lefordított szabállyal.
+     * @return Változott-e cella.
+     */
+    boolean stepLife(GameOfLifeRule rule, GameOfLifeRule.CompiledRule compiled,
+                     Grid grid, int fromX, int fromY, int toX, int toY);
+
+    /**
+     * Wireworld egy téglalapra.
+     * @return Változott-e cella.
+     */
+    boolean stepWireWorld(WireWorldRule rule, Grid grid, int fromX, int fromY, int toX, int toY);
+}
@@ -3,8 +3,15 @@ package model;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.Set;
 
+import controller.GameController;
+import controller.SimulationMetrics;
+import persistence.FileManager;
+import persistence.SaveFormat;
+import persistence.SimulationState;
+
 public class SimulationModelTest {
 
     @Test
@@ -45,6 +52,23 @@ public class SimulationModelTest {
         assertEquals(CellState.DEAD, grid.getCell(0, 0)); 
     }
 
+    @Test
+    public void testGridRowAccess() {
+        // Soronkénti (bulk) olvasás és írás
+        Grid grid = new Grid(4, 3, CellState.EMPTY);
+        grid.setCell(1, 2, CellState.HEAD);
+
+        byte[] row = new byte[4];
+        grid.getRow(2, row, 0);
+        assertEquals(CellState.HEAD, Grid.stateOf(row[1]));
+        assertEquals(CellState.EMPTY, Grid.stateOf(row[0]));
+
+        row[3] = (byte) CellState.CONDUCTOR.ordinal();
+        grid.setRow(0, row, 0);
+        assertEquals(CellState.CONDUCTOR, grid.getCell(3, 0));
+        assertEquals(CellState.HEAD, grid.getCell(1, 0));
+    }
+
     @Test
     public void testGoL_Underpopulation() {
         Grid grid = new Grid(3, 3, CellState.DEAD);
@@ -112,6 +136,32 @@ public class SimulationModelTest {
         assertTrue(survival.contains(6));
         assertFalse(survival.contains(2)); // Régi szabály törlődött
         assertTrue(birth.contains(7));
+        // A halmazok csak olvashatók: a futó szabály nem módosítható rajtuk keresztül
+        assertThrows(UnsupportedOperationException.class, () -> survival.add(2));
+        assertThrows(UnsupportedOperationException.class, () -> birth.clear());
+    }
+
+    @Test
+    public void testGoL_CompiledTableMatchesRuleSets() {
+        // Mind az 512 lehetséges 3x3-as környezetre a tábla a halmazok szerinti eredményt adja
+        GameOfLifeRule rule = new GameOfLifeRule();
+        rule.setRulesFromString("1,3,5,8", "0,3,6");
+        Set<Integer> survival = rule.getSurvivalRules();
+        Set<Integer> birth = rule.getBirthRules();
+
+        for (int pattern = 0; pattern < 512; pattern++) {
+            Grid grid = new Grid(3, 3, CellState.DEAD);
+            int neighbours = 0;
+            for (int bit = 0; bit < 9; bit++) {
+                if ((pattern & (1 << bit)) != 0) {
+                    grid.setCell(bit % 3, bit / 3, CellState.ALIVE);
+                    if (bit != 4) neighbours++;
+                }
+            }
+            boolean alive = (pattern & (1 << 4)) != 0;
+            boolean expected = alive ? survival.contains(neighbours) : birth.contains(neighbours);
+            assertEquals(expected ? CellState.ALIVE : CellState.DEAD, rule.calculateNextState(grid, 1, 1));
+        }
     }
 
     @Test
@@ -160,4 +210,1029 @@ public class SimulationModelTest {
         WireWorldRule rule = new WireWorldRule();
         assertEquals(CellState.CONDUCTOR, rule.calculateNextState(grid, 1, 1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBitLifeEngine_MatchesPerCellRule() {
+        // A bitcsomagolt motornak cellára pontosan a cellánkénti szabállyal kell egyeznie,
+        // 64-gyel nem osztható szélességnél és egyedi S/B szabályoknál is
+        String[][] rules = { {"23", "3"}, {"23", "36"}, {"1358", "357"}, {"", "2"}, {"012345678", "3"} };
+        for (String[] r : rules) {
+            GameOfLifeRule rule = new GameOfLifeRule();
+            rule.setRulesFromString(r[0], r[1]);
+
+            Grid expected = randomLifeGrid(131, 37, 42);
+            Grid actual = randomLifeGrid(131, 37, 42);
+            BitLifeEngine engine = new BitLifeEngine();
+
+            for (int gen = 0; gen < 5; gen++) {
+                expected = stepPerCell(expected, rule);
+                engine.step(actual, rule);
+            }
+            assertGridsEqual(expected, actual);
+        }
+    }
+
+    @Test
+    public void testBitLifeEngine_SeesExternalEdits() {
+        // Két lépés között kívülről módosított rácsot újra kell tölteni
+        GameOfLifeRule rule = new GameOfLifeRule();
+        Grid grid = new Grid(70, 5, CellState.DEAD);
+        BitLifeEngine engine = new BitLifeEngine();
+        engine.step(grid, rule);
+
+        // Vízszintes villogó (blinker) a 64-es szóhatáron
+        grid.setCell(63, 2, CellState.ALIVE);
+        grid.setCell(64, 2, CellState.ALIVE);
+        grid.setCell(65, 2, CellState.ALIVE);
+        engine.step(grid, rule);
+
+        assertEquals(CellState.ALIVE, grid.getCell(64, 1));
+        assertEquals(CellState.ALIVE, grid.getCell(64, 3));
+        assertEquals(CellState.DEAD, grid.getCell(63, 2));
+    }
+
+    @Test
+    public void testParallelStep_MatchesSequential() {
+        // A párhuzamos léptetés eredménye bitre megegyezik a sorossal, mindkét szabálynál
+        Grid golSequential = randomLifeGrid(150, 97, 7);
+        Grid golParallel = randomLifeGrid(150, 97, 7);
+        Grid wwSequential = randomWireGrid(150, 97, 7);
+        Grid wwParallel = randomWireGrid(150, 97, 7);
+
+        GameController golSeq = new GameController(golSequential, new GameOfLifeRule());
+        GameController golPar = new GameController(golParallel, new GameOfLifeRule());
+        GameController wwSeq = new GameController(wwSequential, new WireWorldRule());
+        GameController wwPar = new GameController(wwParallel, new WireWorldRule());
+        golPar.setParallelism(4);
+        wwPar.setParallelism(4);
+
+        for (int gen = 0; gen < 6; gen++) {
+            golSeq.nextGeneration();
+            golPar.nextGeneration();
+            wwSeq.nextGeneration();
+            wwPar.nextGeneration();
+        }
+        golPar.setParallelism(1);
+        wwPar.setParallelism(1);
+
+        assertGridsEqual(golSequential, golParallel);
+        assertGridsEqual(wwSequential, wwParallel);
+    }
+
+    @Test
+    public void testGridSwapBuffers() {
+        Grid grid = new Grid(3, 3, CellState.DEAD);
+        grid.setNextCell(1, 1, CellState.ALIVE);
+
+        // A csere előtt az aktuális generáció nem változik
+        assertEquals(CellState.DEAD, grid.getCell(1, 1));
+        grid.swapBuffers();
+        assertEquals(CellState.ALIVE, grid.getCell(1, 1));
+    }
+
+    @Test
+    public void testSteadyStateStepDoesNotAllocate() {
+        // Bemelegítés után a soros léptetés egyetlen byte-ot sem foglalhat
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) return;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        GameController gol = new GameController(randomLifeGrid(200, 200, 3), new GameOfLifeRule());
+        GameController ww = new GameController(randomWireGrid(200, 200, 3), new WireWorldRule());
+        for (int i = 0; i < 20; i++) {
+            gol.nextGeneration();
+            ww.nextGeneration();
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 50; i++) {
+            gol.nextGeneration();
+            ww.nextGeneration();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // A mérés saját költségére hagyunk egy kis tűrést; a régi út lépésenként ~160 KB volt
+        assertTrue(allocated < 1024, "Lefoglalt byte-ok: " + allocated);
+    }
+
+    @Test
+    public void testActiveTiles_MatchFullEvaluation() {
+        // Ritka minta nagy rácson: a csak aktív csempéket számoló lépés egyezzen a teljes kiértékeléssel,
+        // szerkesztés és szabályváltás után is
+        Grid reference = new Grid(200, 150, CellState.DEAD);
+        Grid grid = new Grid(200, 150, CellState.DEAD);
+        int[][] glider = { {1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2} };
+        for (int[] c : glider) {
+            reference.setCell(c[0] + 28, c[1] + 28, CellState.ALIVE);
+            grid.setCell(c[0] + 28, c[1] + 28, CellState.ALIVE);
+        }
+        GameOfLifeRule rule = new GameOfLifeRule();
+        GameController controller = new GameController(grid, rule);
+
+        for (int gen = 0; gen < 60; gen++) {
+            if (gen == 20) {
+                reference.setCell(150, 100, CellState.ALIVE);
+                controller.paintCell(150, 100, CellState.ALIVE);
+            }
+            if (gen == 40) {
+                rule.setRulesFromString("23", "36");
+                controller.setRule(rule);
+            }
+            reference = stepPerCell(reference, rule);
+            controller.nextGeneration();
+        }
+        assertGridsEqual(reference, grid);
+    }
+
+    @Test
+    public void testActiveTiles_QuiescentGridSkipsTiles() {
+        // Egy stabil alakzat (blokk) után a rácson nincs több változott csempe
+        Grid grid = new Grid(256, 256, CellState.DEAD);
+        grid.setCell(100, 100, CellState.ALIVE);
+        grid.setCell(101, 100, CellState.ALIVE);
+        grid.setCell(100, 101, CellState.ALIVE);
+        grid.setCell(101, 101, CellState.ALIVE);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+
+        controller.nextGeneration();
+        assertEquals(0, grid.getChangedTileCount());
+        assertEquals(0, grid.beginStep());
+    }
+
+    @Test
+    public void testActiveTiles_WireworldFollowsElectrons() {
+        // Wireworld hurok egy elektronnal: csak az elektront tartalmazó csempék aktívak
+        Grid reference = new Grid(128, 128, CellState.EMPTY);
+        Grid grid = new Grid(128, 128, CellState.EMPTY);
+        for (int x = 10; x <= 80; x++) {
+            for (int y : new int[] {10, 20}) {
+                reference.setCell(x, y, CellState.CONDUCTOR);
+                grid.setCell(x, y, CellState.CONDUCTOR);
+            }
+        }
+        for (int y = 10; y <= 20; y++) {
+            for (int x : new int[] {10, 80}) {
+                reference.setCell(x, y, CellState.CONDUCTOR);
+                grid.setCell(x, y, CellState.CONDUCTOR);
+            }
+        }
+        reference.setCell(40, 10, CellState.HEAD);
+        reference.setCell(39, 10, CellState.TAIL);
+        grid.setCell(40, 10, CellState.HEAD);
+        grid.setCell(39, 10, CellState.TAIL);
+
+        WireWorldRule rule = new WireWorldRule();
+        GameController controller = new GameController(grid, rule);
+        for (int gen = 0; gen < 200; gen++) {
+            reference = stepPerCell(reference, rule);
+            controller.nextGeneration();
+            assertTrue(grid.getChangedTileCount() <= 2);
+        }
+        assertGridsEqual(reference, grid);
+    }
+
+    @Test
+    public void testHashLife_MatchesStepping() {
+        // Középre tett véletlen minta: amíg nem éri el a szélét, a HashLife ugrás
+        // egyezik a lépésenkénti futással (egyedi szabállyal is)
+        String[][] rules = { {"23", "3"}, {"23", "36"} };
+        for (String[] r : rules) {
+            GameOfLifeRule rule = new GameOfLifeRule();
+            rule.setRulesFromString(r[0], r[1]);
+
+            Grid reference = new Grid(120, 100, CellState.DEAD);
+            java.util.Random random = new java.util.Random(11);
+            for (int y = 40; y < 60; y++) {
+                for (int x = 50; x < 70; x++) {
+                    if (random.nextBoolean()) reference.setCell(x, y, CellState.ALIVE);
+                }
+            }
+            Grid grid = new Grid(120, 100, CellState.DEAD);
+            for (int y = 0; y < 100; y++) {
+                for (int x = 0; x < 120; x++) {
+                    grid.setCell(x, y, reference.getCell(x, y));
+                }
+            }
+
+            for (int gen = 0; gen < 27; gen++) {
+                reference = stepPerCell(reference, rule);
+            }
+            HashLifeEngine engine = new HashLifeEngine();
+            engine.setRule(rule);
+            engine.load(grid);
+            engine.advance(27);
+            engine.store(grid);
+
+            assertEquals(27, engine.getGeneration());
+            assertGridsEqual(reference, grid);
+        }
+
+        // Kettő-hatványra nem bontható, hosszabb ugrás: a növekvő minta nem lóghat ki a gyökér közepéből;
+        // a rács sarkában a korlátos ugrás a rácson kívüli cellákat halottnak veszi
+        int[][] rPentomino = { {1, 0}, {2, 0}, {0, 1}, {1, 1}, {1, 2} };
+        long[][] cases = { {200, 30}, {200, 100}, {0, 7}, {0, 8}, {0, 13}, {0, 16}, {0, 32}, {0, 100} };
+        for (long[] c : cases) {
+            int offset = (int) c[0];
+            long generations = c[1];
+            Grid reference = new Grid(400, 400, CellState.DEAD);
+            Grid grid = new Grid(400, 400, CellState.DEAD);
+            for (int[] cell : rPentomino) {
+                reference.setCell(offset + cell[0], offset + cell[1], CellState.ALIVE);
+                grid.setCell(offset + cell[0], offset + cell[1], CellState.ALIVE);
+            }
+            for (long gen = 0; gen < generations; gen++) {
+                reference = stepPerCell(reference, new GameOfLifeRule());
+            }
+            HashLifeEngine engine = new HashLifeEngine();
+            engine.setRule(new GameOfLifeRule());
+            engine.load(grid);
+            engine.advanceWithin(generations, 400, 400);
+            engine.store(grid);
+
+            assertEquals(generations, engine.getGeneration());
+            assertGridsEqual(reference, grid);
+        }
+    }
+
+    @Test
+    public void testHashLife_MillionGenerations() {
+        // Egy sikló egymillió generáció után is 5 cellából áll; a lépésenkénti futás ezt nem bírná
+        Grid grid = new Grid(8, 8, CellState.DEAD);
+        int[][] glider = { {1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2} };
+        for (int[] c : glider) grid.setCell(c[0], c[1], CellState.ALIVE);
+
+        HashLifeEngine engine = new HashLifeEngine(10_000);
+        engine.setRule(new GameOfLifeRule());
+        engine.load(grid);
+        engine.advance(1_000_000);
+
+        assertEquals(1_000_000, engine.getGeneration());
+        assertEquals(5, engine.getPopulation());
+    }
+
+    @Test
+    public void testJump_SparseHashLifeAndInterrupt() {
+        // Ritka rácson a HashLife ugrás egyezzen a lépésenkénti futással (negatív koordinátákon is)
+        GameOfLifeRule rule = new GameOfLifeRule();
+        Grid soup = randomLifeGrid(40, 40, 21);
+        SparseGrid stepped = new SparseGrid(50, 50, CellState.DEAD);
+        SparseGrid jumped = new SparseGrid(50, 50, CellState.DEAD);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                stepped.setCell(x - 1000, y - 500, soup.getCell(x, y));
+                jumped.setCell(x - 1000, y - 500, soup.getCell(x, y));
+            }
+        }
+        for (int gen = 0; gen < 300; gen++) {
+            stepped.nextGeneration(rule);
+        }
+        GameController controller = new GameController(jumped, rule);
+        assertEquals(300, controller.jumpGenerations(300, null));
+        assertEquals(300, controller.getGeneration());
+        assertSparseEqual(stepped, jumped);
+
+        // Megszakított szálon az ugrás nem lép, a generációszám változatlan
+        Grid wires = randomWireGrid(30, 30, 22);
+        GameController wireController = new GameController(wires, new WireWorldRule());
+        Thread.currentThread().interrupt();
+        long done = wireController.jumpGenerations(1_000, null);
+        assertTrue(Thread.interrupted());
+        assertEquals(0, done);
+        assertEquals(0, wireController.getGeneration());
+    }
+
+    @Test
+    public void testSparseGrid_GliderTravelsPastWindow() {
+        // A ritka rácson a sikló nem hal el a szélén, és az üres darabok felszabadulnak
+        SparseGrid grid = new SparseGrid(10, 10, CellState.DEAD);
+        int[][] glider = { {1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2} };
+        for (int[] c : glider) grid.setCell(c[0] + 60, c[1] + 60, CellState.ALIVE);
+
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        for (int gen = 0; gen < 400; gen++) {
+            controller.nextGeneration();
+        }
+
+        // 400 generáció alatt a sikló 100 cellát halad átlósan
+        for (int[] c : glider) {
+            assertEquals(CellState.ALIVE, grid.getCell(c[0] + 160, c[1] + 160));
+        }
+        assertTrue(grid.getChunkCount() <= 4);
+        assertEquals(CellState.DEAD, grid.getCell(61, 60));
+    }
+
+    @Test
+    public void testSparseGrid_MatchesBoundedGrid() {
+        // Negatív koordinátákon is ugyanazt adja, mint a korlátos rács (amíg a minta nem éri el a szélét)
+        Grid reference = randomLifeGrid(100, 100, 5);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                if (x < 30 || x >= 70 || y < 30 || y >= 70) reference.setCell(x, y, CellState.DEAD);
+            }
+        }
+        SparseGrid sparse = new SparseGrid(100, 100, CellState.DEAD);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                sparse.setCell(x - 50, y - 50, reference.getCell(x, y));
+            }
+        }
+
+        GameOfLifeRule rule = new GameOfLifeRule();
+        for (int gen = 0; gen < 15; gen++) {
+            reference = stepPerCell(reference, rule);
+            sparse.nextGeneration(rule);
+        }
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                assertEquals(reference.getCell(x, y), sparse.getCell(x - 50, y - 50));
+            }
+        }
+    }
+
+    @Test
+    public void testSparseGrid_EdgeOfIntRangeDoesNotWrap() {
+        // Az int tartomány szélén túl minden cella halott: a villogó fele nem jelenik meg a túloldalon
+        SparseGrid grid = new SparseGrid(10, 10, CellState.DEAD);
+        for (int y = 0; y < 3; y++) grid.setCell(Integer.MAX_VALUE, y, CellState.ALIVE);
+        grid.nextGeneration(new GameOfLifeRule());
+
+        assertEquals(CellState.ALIVE, grid.getCell(Integer.MAX_VALUE - 1, 1));
+        assertEquals(CellState.ALIVE, grid.getCell(Integer.MAX_VALUE, 1));
+        assertEquals(CellState.DEAD, grid.getCell(Integer.MAX_VALUE, 0));
+        assertEquals(CellState.DEAD, grid.getCell(Integer.MIN_VALUE, 1));
+        assertEquals(1, grid.getChunkCount());
+    }
+
+    @Test
+    public void testSparseGrid_SavesWholeContent() throws java.io.IOException {
+        // Az ablakon kívüli (negatív és távoli) cellák is megmaradnak; JSON-ben és binárisan nem menthető
+        FileManager fileManager = new FileManager();
+        GameOfLifeRule rule = new GameOfLifeRule();
+        SparseGrid grid = new SparseGrid(20, 20, CellState.DEAD);
+        int[][] cells = { { 5, 5 }, { 1000, 1000 }, { -3, -3 }, { -2_000_000_000, 7 }, { 6, 5 } };
+        for (int[] cell : cells) grid.setCell(cell[0], cell[1], CellState.ALIVE);
+
+        java.io.File file = java.io.File.createTempFile("sparse", ".rle");
+        try {
+            fileManager.saveSimulation(file, grid, rule);
+            SimulationState state = fileManager.loadSimulation(file);
+            assertTrue(state.grid instanceof SparseGrid);
+            SparseGrid loaded = (SparseGrid) state.grid;
+            assertArrayEquals(grid.getContentBounds(), loaded.getContentBounds());
+            int[] chunks = grid.getChunkCoordinates();
+            assertArrayEquals(chunks, loaded.getChunkCoordinates());
+            for (int i = 0; i < chunks.length; i += 2) {
+                for (int y = 0; y < SparseGrid.CHUNK_SIZE; y++) {
+                    for (int x = 0; x < SparseGrid.CHUNK_SIZE; x++) {
+                        int cellX = (chunks[i] << SparseGrid.CHUNK_SHIFT) + x;
+                        int cellY = (chunks[i + 1] << SparseGrid.CHUNK_SHIFT) + y;
+                        assertEquals(grid.getCell(cellX, cellY), loaded.getCell(cellX, cellY));
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+
+        for (String suffix : new String[] { ".json", ".golb" }) {
+            java.io.File other = java.io.File.createTempFile("sparse", suffix);
+            try {
+                fileManager.saveSimulation(other, grid, rule);
+                fail("A korlátlan rács nem menthető " + suffix + " formátumban");
+            } catch (java.io.IOException expected) {
+                // elvárt
+            } finally {
+                other.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testRle_LargePatternKeepsWholeWindow() throws java.io.IOException {
+        // 10000x10000 > 2^26 cella: ritka rácsba kerül, az ablak a minta mérete, mentéskor semmi sem vész el
+        FileManager fileManager = new FileManager();
+        java.io.File file = java.io.File.createTempFile("large", ".rle");
+        try {
+            java.nio.file.Files.writeString(file.toPath(),
+                    "x = 10000, y = 10000, rule = B3/S23\no4999$4999b2o5000$9999bo!\n");
+            SimulationState state = fileManager.loadSimulation(file);
+            assertTrue(state.grid instanceof SparseGrid);
+            assertEquals(10000, state.grid.getWidth());
+            assertEquals(10000, state.grid.getHeight());
+
+            fileManager.saveSimulation(file, state.grid, state.rule);
+            SparseGrid loaded = (SparseGrid) fileManager.loadSimulation(file).grid;
+            assertArrayEquals(new int[] { 0, 0, 9999, 9999 }, loaded.getContentBounds());
+            int[][] alive = { { 0, 0 }, { 4999, 4999 }, { 5000, 4999 }, { 9999, 9999 } };
+            for (int[] cell : alive) assertEquals(CellState.ALIVE, loaded.getCell(cell[0], cell[1]));
+            assertEquals(CellState.DEAD, loaded.getCell(5001, 4999));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWireWorldEngine_MatchesPerCellRule() {
+        // Az eseményvezérelt motor egyezzen a cellánkénti szabállyal, festés után is
+        WireWorldRule rule = new WireWorldRule();
+        Grid reference = randomWireGrid(90, 70, 13);
+        Grid grid = randomWireGrid(90, 70, 13);
+        GameController controller = new GameController(grid, rule);
+        controller.setEngine(new WireWorldEngine());
+
+        for (int gen = 0; gen < 40; gen++) {
+            if (gen == 10 || gen == 25) {
+                // Vezető, fej és törlés festése futás közben
+                CellState[] paint = { CellState.CONDUCTOR, CellState.HEAD, CellState.EMPTY, CellState.TAIL };
+                for (int i = 0; i < paint.length; i++) {
+                    reference.setCell(20 + i, 30, paint[i]);
+                    controller.paintCell(20 + i, 30, paint[i]);
+                }
+            }
+            reference = stepPerCell(reference, rule);
+            controller.nextGeneration();
+        }
+        assertGridsEqual(reference, grid);
+    }
+
+    @Test
+    public void testStepRegion_DefaultFallsBackToPerCell() {
+        // Csak calculateNextState-et megvalósító szabály is működik a tömeges léptetéssel
+        GameOfLifeRule life = new GameOfLifeRule();
+        SimulationRule perCellOnly = new SimulationRule() {
+            @Override
+            public CellState calculateNextState(Grid grid, int x, int y) {
+                return life.calculateNextState(grid, x, y);
+            }
+        };
+        Grid reference = randomLifeGrid(70, 45, 21);
+        Grid grid = randomLifeGrid(70, 45, 21);
+        GameController controller = new GameController(grid, perCellOnly);
+
+        for (int gen = 0; gen < 8; gen++) {
+            reference = stepPerCell(reference, life);
+            controller.nextGeneration();
+        }
+        assertGridsEqual(reference, grid);
+    }
+
+    @Test
+    public void testVectorKernel_MatchesScalar() {
+        // A modul (--add-modules jdk.incubator.vector) vagy a lefordított src-vector nélkül a kernel nem kapcsolható be
+        if (!VectorSupport.isAvailable()) {
+            VectorSupport.setEnabled(true);
+            assertFalse(VectorSupport.isEnabled());
+            return;
+        }
+        boolean wasEnabled = VectorSupport.isEnabled();
+        VectorSupport.setEnabled(true);
+        try {
+            GameOfLifeRule life = new GameOfLifeRule();
+            life.setRulesFromString("23", "36");
+            Grid lifeReference = randomLifeGrid(131, 37, 31);
+            Grid lifeGrid = randomLifeGrid(131, 37, 31);
+            GameController lifeController = new GameController(lifeGrid, life);
+
+            WireWorldRule wire = new WireWorldRule();
+            Grid wireReference = randomWireGrid(97, 41, 32);
+            Grid wireGrid = randomWireGrid(97, 41, 32);
+            GameController wireController = new GameController(wireGrid, wire);
+
+            for (int gen = 0; gen < 10; gen++) {
+                lifeReference = stepPerCell(lifeReference, life);
+                lifeController.nextGeneration();
+                wireReference = stepPerCell(wireReference, wire);
+                wireController.nextGeneration();
+            }
+            assertGridsEqual(lifeReference, lifeGrid);
+            assertGridsEqual(wireReference, wireGrid);
+        } finally {
+            VectorSupport.setEnabled(wasEnabled);
+        }
+    }
+
+    @Test
+    public void testMappedGrid_MatchesHeapGridAndReopens() throws java.io.IOException {
+        FileManager fileManager = new FileManager();
+        GameOfLifeRule life = new GameOfLifeRule();
+        life.setRulesFromString("23", "36");
+        Object[][] cases = {
+            { randomLifeGrid(131, 37, 51), life },
+            { randomWireGrid(97, 41, 52), new WireWorldRule() }   // nem nulla alapállapot
+        };
+        for (Object[] c : cases) {
+            Grid reference = (Grid) c[0];
+            SimulationRule rule = (SimulationRule) c[1];
+            java.io.File file = java.io.File.createTempFile("mapped", ".golm");
+            try {
+                MappedGrid mapped = (MappedGrid) fileManager.createMappedSimulation(
+                        file, reference.getWidth(), reference.getHeight(), rule).grid;
+                byte[] row = new byte[reference.getWidth()];
+                for (int y = 0; y < reference.getHeight(); y++) {
+                    reference.getRow(y, row, 0);
+                    mapped.setRow(y, row, 0);
+                }
+                GameController referenceController = new GameController(reference, rule);
+                GameController mappedController = new GameController(mapped, rule);
+                for (int gen = 0; gen < 10; gen++) {
+                    referenceController.nextGeneration();
+                    mappedController.nextGeneration();
+                }
+                assertGridsEqual(reference, mapped);
+
+                // Mentés = flush; újranyitva ugyanaz a generáció és szabály
+                fileManager.saveSimulation(file, mapped, rule);
+                mapped.close();
+                SimulationState state = fileManager.loadSimulation(file);
+                assertTrue(state.grid instanceof MappedGrid);
+                assertGridsEqual(reference, state.grid);
+                assertEquals(rule.getClass(), state.rule.getClass());
+                ((MappedGrid) state.grid).close();
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testDirtyTiles_OnlyChangedCellsReported() {
+        Grid grid = new Grid(100, 100, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        // Vízszintes villogó a (40..42, 50) cellákon: lépésenként a 3x3-as középrész változik
+        grid.setCell(40, 50, CellState.ALIVE);
+        grid.setCell(41, 50, CellState.ALIVE);
+        grid.setCell(42, 50, CellState.ALIVE);
+        controller.nextGeneration();
+        controller.nextGeneration();
+
+        grid.clearDirtyTiles();
+        controller.nextGeneration();
+        int[] bounds = new int[4];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = 0, maxY = 0;
+        assertTrue(grid.getDirtyTileCount() > 0);
+        for (int i = 0; i < grid.getDirtyTileCount(); i++) {
+            grid.getChangedBounds(grid.getDirtyTile(i), bounds);
+            if (bounds[2] <= bounds[0]) continue;
+            minX = Math.min(minX, bounds[0]);
+            minY = Math.min(minY, bounds[1]);
+            maxX = Math.max(maxX, bounds[2]);
+            maxY = Math.max(maxY, bounds[3]);
+        }
+        // A villogó végpontjai: (40, 50), (42, 50) és (41, 49), (41, 51)
+        assertEquals(40, minX);
+        assertEquals(49, minY);
+        assertEquals(43, maxX);
+        assertEquals(52, maxY);
+    }
+
+    @Test
+    public void testCellClick_DragPaintsClickedState() {
+        // A húzás a kattintáskor (a zár alatt) eldöntött állapotot festi, a cellák állapotától függetlenül
+        Grid grid = new Grid(20, 20, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        controller.paintCell(5, 5, CellState.ALIVE);
+        controller.paintCell(7, 5, CellState.ALIVE);
+        controller.handleCellClick(5, 5);
+        controller.dragCell(6, 5);
+        controller.dragCell(7, 5);
+        assertEquals(CellState.DEAD, grid.getCell(5, 5));
+        assertEquals(CellState.DEAD, grid.getCell(6, 5));
+        assertEquals(CellState.DEAD, grid.getCell(7, 5));
+
+        controller.handleCellClick(10, 10);
+        controller.dragCell(11, 10);
+        assertEquals(CellState.ALIVE, grid.getCell(10, 10));
+        assertEquals(CellState.ALIVE, grid.getCell(11, 10));
+
+        Grid wires = new Grid(20, 20, CellState.EMPTY);
+        GameController wireController = new GameController(wires, new WireWorldRule());
+        wireController.setSelectedToolState(CellState.HEAD);
+        wireController.handleCellClick(3, 3);
+        wireController.dragCell(4, 3);
+        assertEquals(CellState.HEAD, wires.getCell(3, 3));
+        assertEquals(CellState.HEAD, wires.getCell(4, 3));
+    }
+
+    @Test
+    public void testSimulationThread_StopAndEdits() throws InterruptedException {
+        Grid grid = new Grid(40, 40, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        // Blokk (csendélet): a futás nem változtatja meg
+        controller.paintCell(10, 10, CellState.ALIVE);
+        controller.paintCell(11, 10, CellState.ALIVE);
+        controller.paintCell(10, 11, CellState.ALIVE);
+        controller.paintCell(11, 11, CellState.ALIVE);
+
+        controller.startSimulation();
+        assertTrue(controller.isRunning());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (controller.getGeneration() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        // Futás közbeni szerkesztés: egy második blokk
+        controller.paintCell(30, 30, CellState.ALIVE);
+        controller.paintCell(31, 30, CellState.ALIVE);
+        controller.paintCell(30, 31, CellState.ALIVE);
+        controller.paintCell(31, 31, CellState.ALIVE);
+        controller.stopSimulation();
+        assertFalse(controller.isRunning());
+
+        long stopped = controller.getGeneration();
+        assertTrue(stopped >= 1);
+        Thread.sleep(20);
+        assertEquals(stopped, controller.getGeneration());
+        assertEquals(CellState.ALIVE, grid.getCell(10, 10));
+        assertEquals(CellState.ALIVE, grid.getCell(31, 31));
+        assertEquals(CellState.DEAD, grid.getCell(20, 20));
+    }
+
+    @Test
+    public void testTargetSpeed_LadderAndUnlimited() throws InterruptedException {
+        Grid grid = new Grid(20, 20, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        controller.setTargetSpeed(1);
+        controller.decreaseSpeed();
+        assertEquals(1, controller.getTargetSpeed());
+        controller.increaseSpeed();
+        assertEquals(2, controller.getTargetSpeed());
+
+        // Korlátlan sebességnél a lépések kötegekben futnak, nem képkockánként egy
+        controller.setTargetSpeed(GameController.UNLIMITED);
+        controller.increaseSpeed();
+        assertEquals(GameController.UNLIMITED, controller.getTargetSpeed());
+        controller.paintCell(5, 5, CellState.ALIVE);
+        controller.paintCell(6, 5, CellState.ALIVE);
+        controller.paintCell(7, 5, CellState.ALIVE);
+        controller.startSimulation();
+        Thread.sleep(200);
+        controller.stopSimulation();
+        assertTrue(controller.getGeneration() > 1000);
+        // Villogó: páros generációnál vízszintes, páratlannál függőleges
+        CellState expected = controller.getGeneration() % 2 == 0 ? CellState.DEAD : CellState.ALIVE;
+        assertEquals(expected, grid.getCell(6, 4));
+    }
+
+    @Test
+    public void testMetrics_StepRatesAndPercentiles() throws InterruptedException {
+        Grid grid = new Grid(20, 20, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        controller.paintCell(5, 5, CellState.ALIVE);
+        controller.paintCell(6, 5, CellState.ALIVE);
+        controller.paintCell(7, 5, CellState.ALIVE);
+        controller.setTargetSpeed(GameController.UNLIMITED);
+        controller.startSimulation();
+        // Az első mérési ablak kb. egy másodperc után zárul le
+        Thread.sleep(1300);
+        controller.stopSimulation();
+
+        SimulationMetrics metrics = controller.getMetrics();
+        assertEquals(controller.getGeneration(), metrics.getGenerations());
+        assertTrue(metrics.getGenerationsPerSecond() > 1000);
+        // 20 x 20 cella generációnként
+        assertTrue(Math.abs(metrics.getGenerationsPerSecond() * 400 - metrics.getCellsPerSecond()) < 1e-6 * metrics.getCellsPerSecond());
+        assertTrue(metrics.getStepP50Micros() > 0);
+        assertTrue(metrics.getStepP50Micros() <= metrics.getStepP99Micros());
+    }
+
+    @Test
+    public void testFlightRecorder_StepAndSaveEvents() throws java.io.IOException {
+        Grid grid = new Grid(64, 64, CellState.DEAD);
+        GameController controller = new GameController(grid, new GameOfLifeRule());
+        controller.paintCell(5, 5, CellState.ALIVE);
+        controller.paintCell(6, 5, CellState.ALIVE);
+        controller.paintCell(7, 5, CellState.ALIVE);
+        java.nio.file.Path dump = java.nio.file.Files.createTempFile("steps", ".jfr");
+        java.io.File saved = java.io.File.createTempFile("steps", ".golb");
+        try {
+            // Kikapcsolt eseménnyel nem keletkezik bejegyzés
+            controller.nextGeneration();
+            try (jdk.jfr.Recording recording = new jdk.jfr.Recording()) {
+                recording.enable("gameoflife.Step");
+                recording.enable("gameoflife.Save");
+                recording.start();
+                controller.nextGeneration();
+                controller.nextGeneration();
+                new FileManager().saveSimulation(saved, grid, controller.getRule());
+                recording.stop();
+                recording.dump(dump);
+            }
+            int steps = 0;
+            int saves = 0;
+            for (jdk.jfr.consumer.RecordedEvent event : jdk.jfr.consumer.RecordingFile.readAllEvents(dump)) {
+                String name = event.getEventType().getName();
+                if (name.equals("gameoflife.Step")) {
+                    steps++;
+                    assertEquals(64, event.getInt("width"));
+                    assertEquals("GameOfLifeRule", event.getString("rule"));
+                    assertTrue(event.getLong("generation") >= 2);
+                } else if (name.equals("gameoflife.Save")) {
+                    saves++;
+                    assertEquals(saved.length(), event.getLong("bytes"));
+                }
+            }
+            assertEquals(2, steps);
+            assertEquals(1, saves);
+        } finally {
+            java.nio.file.Files.deleteIfExists(dump);
+            saved.delete();
+        }
+    }
+
+    @Test
+    public void testCycleDetection_HashPeriodAndFastForward() throws InterruptedException {
+        // A lépésenként frissített hash megegyezik a teljes újraszámolással (cellánként és motorral is)
+        Grid soup = randomLifeGrid(150, 100, 5);
+        GameController soupController = new GameController(soup, new GameOfLifeRule());
+        soupController.setCycleDetection(true);
+        for (int i = 0; i < 20; i++) {
+            soupController.nextGeneration();
+        }
+        soupController.setEngine(new BitLifeEngine());
+        soupController.paintCell(3, 3, CellState.ALIVE);
+        for (int i = 0; i < 20; i++) {
+            soupController.nextGeneration();
+        }
+        Grid copy = new Grid(150, 100, CellState.DEAD);
+        byte[] row = new byte[150];
+        for (int y = 0; y < 100; y++) {
+            soup.getRow(y, row, 0);
+            copy.setRow(y, row, 0);
+        }
+        copy.setHashing(true);
+        assertEquals(copy.getHash(), soup.getHash());
+
+        // Három cellából az első lépésben blokk lesz: csendélet az 1. generációtól
+        long[] reported = new long[2];
+        GameController block = new GameController(new Grid(20, 20, CellState.DEAD), new GameOfLifeRule());
+        block.setCycleDetection(true);
+        block.setCycleListener((start, period) -> {
+            reported[0] = start;
+            reported[1] = period;
+        });
+        block.paintCell(5, 5, CellState.ALIVE);
+        block.paintCell(6, 5, CellState.ALIVE);
+        block.paintCell(5, 6, CellState.ALIVE);
+        block.setTargetSpeed(GameController.UNLIMITED);
+        block.startSimulation();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (block.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(block.isRunning());
+        assertEquals(2, block.getGeneration());
+        assertEquals(1, reported[0]);
+        assertEquals(1, reported[1]);
+
+        // Wireworld-gyűrű: a felismert periódus után az ugrás ugyanoda visz, mint a lépésenkénti futás
+        Grid ring = new Grid(12, 8, CellState.EMPTY);
+        Grid reference = new Grid(12, 8, CellState.EMPTY);
+        for (Grid g : new Grid[] { ring, reference }) {
+            for (int x = 1; x <= 10; x++) {
+                g.setCell(x, 1, CellState.CONDUCTOR);
+                g.setCell(x, 6, CellState.CONDUCTOR);
+            }
+            for (int y = 1; y <= 6; y++) {
+                g.setCell(1, y, CellState.CONDUCTOR);
+                g.setCell(10, y, CellState.CONDUCTOR);
+            }
+            g.setCell(4, 1, CellState.HEAD);
+            g.setCell(3, 1, CellState.TAIL);
+        }
+        GameController wire = new GameController(ring, new WireWorldRule());
+        wire.setCycleDetection(true);
+        while (wire.getCyclePeriod() == 0 && wire.getGeneration() < 1000) {
+            wire.nextGeneration();
+        }
+        int period = wire.getCyclePeriod();
+        assertTrue(period > 1);
+        assertEquals(0, wire.getCycleStart());
+        assertEquals(period, wire.getGeneration());
+
+        GameController stepped = new GameController(reference, new WireWorldRule());
+        long target = 1_000_003;
+        wire.jumpGenerations(target - wire.getGeneration());
+        assertEquals(target, wire.getGeneration());
+        for (long i = 0; i < target % period; i++) {
+            stepped.nextGeneration();
+        }
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 12; x++) {
+                assertEquals(reference.getCell(x, y), ring.getCell(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryFormat_RoundTrip() throws java.io.IOException {
+        FileManager fileManager = new FileManager();
+        GameOfLifeRule life = new GameOfLifeRule();
+        life.setRulesFromString("1,3,5,8", "0,3,6");
+        Grid sparseLife = new Grid(300, 200, CellState.DEAD);
+        sparseLife.setCell(7, 9, CellState.ALIVE);
+        sparseLife.setCell(299, 199, CellState.ALIVE);
+
+        Object[][] cases = {
+            { randomLifeGrid(83, 61, 41), life },          // sűrű: bitcsomagolt
+            { sparseLife, life },                          // ritka: futáshossz
+            { randomWireGrid(77, 53, 42), new WireWorldRule() }
+        };
+        for (Object[] c : cases) {
+            Grid grid = (Grid) c[0];
+            SimulationRule rule = (SimulationRule) c[1];
+            for (SaveFormat format : new SaveFormat[] { SaveFormat.BINARY, SaveFormat.BINARY_COMPRESSED }) {
+                java.io.File file = java.io.File.createTempFile("roundtrip", ".golb");
+                try {
+                    fileManager.saveSimulation(file, grid, rule, format);
+                    SimulationState state = fileManager.loadSimulation(file);
+                    assertGridsEqual(grid, state.grid);
+                    assertEquals(rule.getClass(), state.rule.getClass());
+                    if (rule instanceof GameOfLifeRule) {
+                        assertEquals(life.getSurvivalRules(), ((GameOfLifeRule) state.rule).getSurvivalRules());
+                        assertEquals(life.getBirthRules(), ((GameOfLifeRule) state.rule).getBirthRules());
+                    }
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryFormat_RejectsBadHeaderSize() throws java.io.IOException {
+        // Az egyik oldal 0, a másik óriási: a betöltés a sorpuffer lefoglalása előtt hibát jelez
+        FileManager fileManager = new FileManager();
+        java.io.File file = java.io.File.createTempFile("header", ".golb");
+        try {
+            fileManager.saveSimulation(file, randomLifeGrid(20, 10, 46), new GameOfLifeRule(), SaveFormat.BINARY);
+            byte[] bytes = java.nio.file.Files.readAllBytes(file.toPath());
+            int[][] sizes = { { Integer.MAX_VALUE, 0 }, { 0, 5 }, { 1 << 30, 1 } };
+            for (int[] size : sizes) {
+                // A szélesség és a magasság a fejléc 8. és 12. byte-jától, big-endian
+                java.nio.ByteBuffer.wrap(bytes).putInt(8, size[0]).putInt(12, size[1]);
+                java.nio.file.Files.write(file.toPath(), bytes);
+                try {
+                    fileManager.loadSimulation(file);
+                    fail("Elfogadott rácsméret: " + size[0] + "x" + size[1]);
+                } catch (java.io.IOException expected) {
+                    assertTrue(expected.getMessage().contains("rácsméret"));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testJsonFormat_RoundTripAndStreaming() throws java.io.IOException {
+        FileManager fileManager = new FileManager();
+        GameOfLifeRule life = new GameOfLifeRule();
+        life.setRulesFromString("1,3,5,8", "0,3,6");
+        java.io.File file = java.io.File.createTempFile("roundtrip", ".json");
+        try {
+            Object[][] cases = { { randomLifeGrid(83, 61, 43), life }, { randomWireGrid(77, 53, 44), new WireWorldRule() } };
+            for (Object[] c : cases) {
+                Grid grid = (Grid) c[0];
+                SimulationRule rule = (SimulationRule) c[1];
+                fileManager.saveSimulation(file, grid, rule, SaveFormat.JSON);
+                SimulationState state = fileManager.loadSimulation(file);
+                assertGridsEqual(grid, state.grid);
+                assertEquals(rule.getClass(), state.rule.getClass());
+                if (rule instanceof GameOfLifeRule) {
+                    assertEquals(life.getSurvivalRules(), ((GameOfLifeRule) state.rule).getSurvivalRules());
+                    assertEquals(life.getBirthRules(), ((GameOfLifeRule) state.rule).getBirthRules());
+                }
+            }
+
+            // A cellák a méret és a típus előtt: a sorok a fejlécig félre kerülnek, a hiányzó cella alapállapotú
+            java.nio.file.Files.writeString(file.toPath(),
+                    "{\"cells\": [[\"HEAD\", \"CONDUCTOR\", \"TAIL\"], [\"TAIL\"]], \"type\": \"WIREWORLD\", \"width\": 2, \"height\": 2}");
+            SimulationState state = fileManager.loadSimulation(file);
+            assertTrue(state.rule instanceof WireWorldRule);
+            assertEquals(2, state.grid.getWidth());
+            assertEquals(CellState.HEAD, state.grid.getCell(0, 0));
+            assertEquals(CellState.CONDUCTOR, state.grid.getCell(1, 0));
+            assertEquals(CellState.TAIL, state.grid.getCell(0, 1));
+            assertEquals(CellState.EMPTY, state.grid.getCell(1, 1));
+
+            // A betöltő szál megszakítása (itt az első sor után) InterruptedIOException-nel áll le
+            fileManager.saveSimulation(file, randomLifeGrid(300, 300, 45), life, SaveFormat.JSON);
+            try {
+                fileManager.loadSimulation(file, (rows, total) -> { if (rows == 10) Thread.currentThread().interrupt(); });
+                fail("A megszakított betöltés nem állt le");
+            } catch (java.io.InterruptedIOException expected) {
+                // elvárt
+            } finally {
+                Thread.interrupted();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testPatternImport_RleAndMacrocell() throws java.io.IOException {
+        FileManager fileManager = new FileManager();
+        java.io.File rle = java.io.File.createTempFile("glider", ".rle");
+        java.io.File mc = java.io.File.createTempFile("glider", ".mc");
+        try {
+            java.nio.file.Files.writeString(rle.toPath(),
+                    "#N Glider\nx = 3, y = 3, rule = B36/S23\nbob$2bo$3o!\n");
+            SimulationState state = fileManager.loadSimulation(rle);
+            assertEquals(3, state.grid.getWidth());
+            assertEquals(CellState.ALIVE, state.grid.getCell(1, 0));
+            assertEquals(CellState.DEAD, state.grid.getCell(0, 1));
+            assertEquals(CellState.ALIVE, state.grid.getCell(2, 2));
+            assertEquals(Set.of(3, 6), ((GameOfLifeRule) state.rule).getBirthRules());
+            assertEquals(Set.of(2, 3), ((GameOfLifeRule) state.rule).getSurvivalRules());
+
+            // Ugyanaz a sikló Macrocellben, a 16x16-os gyökér jobb alsó negyedében
+            java.nio.file.Files.writeString(mc.toPath(),
+                    "[M2] (golly 4.0)\n#R B3/S23\n.*$..*$***$\n4 0 0 0 1\n");
+            Grid glider = fileManager.loadSimulation(mc).grid;
+            assertGridsEqual(state.grid, glider);
+
+            // Exportálás és visszaolvasás (Wireworld is)
+            Grid wire = randomWireGrid(37, 23, 51);
+            fileManager.saveSimulation(rle, wire, new WireWorldRule());
+            SimulationState loaded = fileManager.loadSimulation(rle);
+            assertTrue(loaded.rule instanceof WireWorldRule);
+            assertGridsEqual(wire, loaded.grid);
+        } finally {
+            rle.delete();
+            mc.delete();
+        }
+    }
+
+    /**
+     * Véletlenszerű, de ismételhető Wireworld rács (sok vezetővel, néhány elektronnal).
+     */
+    private static Grid randomWireGrid(int width, int height, long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        CellState[] states = { CellState.EMPTY, CellState.CONDUCTOR, CellState.CONDUCTOR, CellState.HEAD, CellState.TAIL };
+        Grid grid = new Grid(width, height, CellState.EMPTY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid.setCell(x, y, states[random.nextInt(states.length)]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Véletlenszerű, de ismételhető Életjáték rács.
+     */
+    private static Grid randomLifeGrid(int width, int height, long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        Grid grid = new Grid(width, height, CellState.DEAD);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextInt(3) == 0) grid.setCell(x, y, CellState.ALIVE);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Referencia lépés: cellánként, a szabály calculateNextState metódusával.
+     */
+    private static Grid stepPerCell(Grid grid, SimulationRule rule) {
+        Grid result = new Grid(grid.getWidth(), grid.getHeight(), grid.getDefaultState());
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                result.setCell(x, y, rule.calculateNextState(grid, x, y));
+            }
+        }
+        return result;
+    }
+
+    private static void assertSparseEqual(SparseGrid expected, SparseGrid actual) {
+        assertArrayEquals(expected.getContentBounds(), actual.getContentBounds());
+        for (int[] chunks : new int[][] { expected.getChunkCoordinates(), actual.getChunkCoordinates() }) {
+            assertChunksEqual(expected, actual, chunks);
+        }
+    }
+
+    private static void assertChunksEqual(SparseGrid expected, SparseGrid actual, int[] chunks) {
+        for (int i = 0; i < chunks.length; i += 2) {
+            int baseX = chunks[i] << SparseGrid.CHUNK_SHIFT;
+            int baseY = chunks[i + 1] << SparseGrid.CHUNK_SHIFT;
+            for (int y = baseY; y < baseY + SparseGrid.CHUNK_SIZE; y++) {
+                for (int x = baseX; x < baseX + SparseGrid.CHUNK_SIZE; x++) {
+                    assertEquals(expected.getCell(x, y), actual.getCell(x, y), "(" + x + "," + y + ")");
+                }
+            }
+        }
+    }
+
+    private static void assertGridsEqual(Grid expected, Grid actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getCell(x, y), actual.getCell(x, y), "(" + x + "," + y + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Korlátlan, ritka rács: a cellák 64x64-es darabokban (chunk) tárolódnak egy primitív
+ * kulcsú hash táblában, és csak ott foglalnak memóriát, ahol nem alapállapotú cella van.
+ * A koordináták a teljes int tartományt lefedik; a teljesen alapállapotúvá vált darabok
+ * a lépések során automatikusan kikerülnek.
+ *
+ * A getWidth/getHeight a megjelenített ablak méretét adja, így a kirajzolás és a meglévő
+ * szabályok változtatás nélkül működnek rajta. A teljes tartalmat a getContentBounds és
+ * a getChunkCoordinates írja le (pl. exportáláshoz). Feltételezzük, hogy a szabály a csupa
+ * alapállapotú környezetet alapállapotban hagyja (B0 nélküli Életjáték, Wireworld).
+ */
+public class SparseGrid extends Grid {
+
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    // Az int koordináta-tartományba eső darabindexek; ezen kívül minden cella alapállapotú
+    private static final int MIN_CHUNK = Integer.MIN_VALUE >> CHUNK_SHIFT;
+    private static final int MAX_CHUNK = Integer.MAX_VALUE >> CHUNK_SHIFT;
+    // A léptetéshez a darab és egy cellás kerete egy tömbös rácsba kerül
+    private static final int SCRATCH_SIZE = CHUNK_SIZE + 2;
+
+    // Jelölő a már kiszámolt, de üresnek bizonyult darabokhoz
+    private static final byte[] COMPUTED_EMPTY = new byte[0];
+
+    private ChunkMap chunks = new ChunkMap();
+    private ChunkMap nextChunks = new ChunkMap();
+    private final ArrayDeque<byte[]> spareChunks = new ArrayDeque<>();
+    private long[] emptyKeys = new long[16];
+    private int emptyCount;
+
+    private final byte defaultValue;
+    private int viewWidth;
+    private int viewHeight;
+    private int modCount;
+    private Grid scratch;
+
+    // Az utoljára olvasott darab: a szomszédok többnyire ugyanabba esnek
+    private boolean cacheValid;
+    private long cachedKey;
+    private byte[] cachedChunk;
+
+    /**
+     * @param viewWidth A megjelenített ablak szélessége.
+     * @param viewHeight A megjelenített ablak magassága.
+     */
+    public SparseGrid(int viewWidth, int viewHeight, CellState defaultState) {
+        super(0, 0, defaultState);
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.defaultValue = (byte) defaultState.ordinal();
+    }
+
+    private static long keyOf(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private byte[] chunkFor(long key) {
+        if (!cacheValid || cachedKey != key) {
+            cachedChunk = chunks.get(key);
+            cachedKey = key;
+            cacheValid = true;
+        }
+        return cachedChunk;
+    }
+
+    @Override
+    public CellState getCell(int x, int y) {
+        byte[] chunk = chunkFor(keyOf(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT));
+        if (chunk == null) {
+            return getDefaultState();
+        }
+        return stateOf(chunk[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)]);
+    }
+
+    @Override
+    public void setCell(int x, int y, CellState state) {
+        long key = keyOf(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        byte[] chunk = chunks.get(key);
+        if (chunk == null) {
+            if (state == getDefaultState()) {
+                modCount++;
+                return;
+            }
+            chunk = takeChunk();
+            Arrays.fill(chunk, defaultValue);
+            chunks.put(key, chunk);
+            cacheValid = false;
+        }
+        chunk[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] = (byte) state.ordinal();
+        modCount++;
+    }
+
+    private byte[] takeChunk() {
+        byte[] chunk = spareChunks.poll();
+        return chunk != null ? chunk : new byte[CHUNK_CELLS];
+    }
+
+    /**
+     * Egy generációval lépteti a meglévő darabokat, és azokat a szomszédos darabokat,
+     * amelyek felé a határon nem alapállapotú cella van.
+     */
+    public void nextGeneration(SimulationRule rule) {
+        nextChunks.clear();
+        emptyCount = 0;
+
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            byte[] chunk = chunks.valueAt(slot);
+            if (chunk == null) continue;
+
+            long key = chunks.keyAt(slot);
+            int chunkX = (int) (key >> 32);
+            int chunkY = (int) key;
+            computeChunk(rule, chunkX, chunkY);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if ((dx != 0 || dy != 0) && inRange(chunkX + dx, chunkY + dy)
+                            && touchesBorder(chunk, dx, dy)) {
+                        computeChunk(rule, chunkX + dx, chunkY + dy);
+                    }
+                }
+            }
+        }
+
+        // Az üresnek bizonyult darabok kikerülnek, a régi darabok újrahasznosulnak
+        for (int i = 0; i < emptyCount; i++) {
+            nextChunks.remove(emptyKeys[i]);
+        }
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            byte[] chunk = chunks.valueAt(slot);
+            if (chunk != null) spareChunks.push(chunk);
+        }
+        chunks.clear();
+
+        ChunkMap swap = chunks;
+        chunks = nextChunks;
+        nextChunks = swap;
+        cacheValid = false;
+        modCount++;
+    }
+
+    private static boolean inRange(int chunkX, int chunkY) {
+        return chunkX >= MIN_CHUNK && chunkX <= MAX_CHUNK && chunkY >= MIN_CHUNK && chunkY <= MAX_CHUNK;
+    }
+
+    /**
+     * Egy darab következő generációja. A darab a keretével egy tömbös segédrácsba másolódik,
+     * így a szabály gyors útja (stepRegion) számol cellánkénti getCell helyett.
+     */
+    private void computeChunk(SimulationRule rule, int chunkX, int chunkY) {
+        long key = keyOf(chunkX, chunkY);
+        if (nextChunks.get(key) != null) return;
+
+        if (scratch == null) {
+            scratch = new Grid(SCRATCH_SIZE, SCRATCH_SIZE, getDefaultState());
+        }
+        loadScratch(chunkX, chunkY);
+        rule.stepRegion(scratch, 1, 1, CHUNK_SIZE + 1, CHUNK_SIZE + 1);
+
+        byte[] next = scratch.nextCells();
+        byte[] out = takeChunk();
+        boolean nonDefault = false;
+        for (int ly = 0; ly < CHUNK_SIZE; ly++) {
+            int from = (ly + 1) * SCRATCH_SIZE + 1;
+            int to = ly << CHUNK_SHIFT;
+            System.arraycopy(next, from, out, to, CHUNK_SIZE);
+            for (int lx = 0; lx < CHUNK_SIZE && !nonDefault; lx++) {
+                nonDefault = out[to + lx] != defaultValue;
+            }
+        }
+
+        if (nonDefault) {
+            nextChunks.put(key, out);
+        } else {
+            spareChunks.push(out);
+            nextChunks.put(key, COMPUTED_EMPTY);
+            if (emptyCount == emptyKeys.length) {
+                emptyKeys = Arrays.copyOf(emptyKeys, emptyCount * 2);
+            }
+            emptyKeys[emptyCount++] = key;
+        }
+    }
+
+    /**
+     * A darab és a szomszédos darabok vele érintkező sorai/oszlopai a segédrácsba;
+     * ami hiányzik (vagy az int tartományon kívül esik), az alapállapotú.
+     */
+    private void loadScratch(int chunkX, int chunkY) {
+        byte[] cells = scratch.currentCells();
+        Arrays.fill(cells, defaultValue);
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (!inRange(chunkX + dx, chunkY + dy)) continue;
+                byte[] chunk = chunks.get(keyOf(chunkX + dx, chunkY + dy));
+                if (chunk == null) continue;
+                int fromX = dx < 0 ? CHUNK_MASK : 0;
+                int toX = dx > 0 ? 1 : CHUNK_SIZE;
+                int fromY = dy < 0 ? CHUNK_MASK : 0;
+                int toY = dy > 0 ? 1 : CHUNK_SIZE;
+                for (int ly = fromY; ly < toY; ly++) {
+                    int target = (1 + dy * CHUNK_SIZE + ly) * SCRATCH_SIZE + 1 + dx * CHUNK_SIZE + fromX;
+                    System.arraycopy(chunk, (ly << CHUNK_SHIFT) + fromX, cells, target, toX - fromX);
+                }
+            }
+        }
+    }
+
+    /**
+     * Van-e nem alapállapotú cella a darab (dx, dy) irányú szélén vagy sarkán.
+     */
+    private boolean touchesBorder(byte[] chunk, int dx, int dy) {
+        int x = dx < 0 ? 0 : CHUNK_MASK;
+        int y = dy < 0 ? 0 : CHUNK_MASK;
+        if (dx != 0 && dy != 0) {
+            return chunk[(y << CHUNK_SHIFT) | x] != defaultValue;
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            int index = dx == 0 ? (y << CHUNK_SHIFT) | i : (i << CHUNK_SHIFT) | x;
+            if (chunk[index] != defaultValue) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void getRow(int y, byte[] dest, int offset) {
+        for (int x = 0; x < viewWidth; x++) {
+            dest[offset + x] = (byte) getCell(x, y).ordinal();
+        }
+    }
+
+    /**
+     * Egy sorszakasz darabonként másolva; a szakasz tetszőleges int koordinátán kezdődhet.
+     */
+    @Override
+    public void getRow(int y, int fromX, int length, byte[] dest, int offset) {
+        int chunkY = y >> CHUNK_SHIFT;
+        int rowBase = (y & CHUNK_MASK) << CHUNK_SHIFT;
+        int i = 0;
+        while (i < length) {
+            int x = fromX + i;
+            int count = Math.min(length - i, CHUNK_SIZE - (x & CHUNK_MASK));
+            byte[] chunk = chunkFor(keyOf(x >> CHUNK_SHIFT, chunkY));
+            if (chunk == null) {
+                Arrays.fill(dest, offset + i, offset + i + count, defaultValue);
+            } else {
+                System.arraycopy(chunk, rowBase + (x & CHUNK_MASK), dest, offset + i, count);
+            }
+            i += count;
+        }
+    }
+
+    @Override
+    public void setRow(int y, byte[] src, int offset) {
+        for (int x = 0; x < viewWidth; x++) {
+            setCell(x, y, stateOf(src[offset + x]));
+        }
+    }
+
+    @Override
+    public int getWidth() { return viewWidth; }
+
+    @Override
+    public int getHeight() { return viewHeight; }
+
+    @Override
+    public int getModCount() { return modCount; }
+
+    @Override
+    public boolean isBounded() { return false; }
+
+    @Override
+    boolean isArrayBacked() { return false; }
+
+    /**
+     * A lefoglalt (nem üres) darabok száma.
+     */
+    public int getChunkCount() { return chunks.size(); }
+
+    /**
+     * A lefoglalt darabok indexei (darab index = koordináta >> CHUNK_SHIFT) párosával,
+     * { x0, y0, x1, y1, ... } alakban, soronként (y), azon belül oszlop (x) szerint rendezve.
+     */
+    public int[] getChunkCoordinates() {
+        long[] keys = new long[chunks.size()];
+        int count = 0;
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            if (chunks.valueAt(slot) != null) {
+                long key = chunks.keyAt(slot);
+                // Rendezési kulcs: y a felső felében (előjelesen), x az alsóban előjelbittel átfordítva
+                keys[count++] = ((key << 32) | (key >>> 32)) ^ 0x80000000L;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int[] coordinates = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            long key = keys[i] ^ 0x80000000L;
+            coordinates[2 * i] = (int) key;
+            coordinates[2 * i + 1] = (int) (key >>> 32);
+        }
+        return coordinates;
+    }
+
+    /**
+     * A nem alapállapotú cellák befoglaló téglalapja { minX, minY, maxX, maxY } (a határok is benne vannak),
+     * vagy null, ha minden cella alapállapotú.
+     */
+    public int[] getContentBounds() {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        boolean found = false;
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            byte[] chunk = chunks.valueAt(slot);
+            if (chunk == null) continue;
+            long key = chunks.keyAt(slot);
+            int baseX = (int) (key >> 32) << CHUNK_SHIFT;
+            int baseY = (int) key << CHUNK_SHIFT;
+            for (int i = 0; i < CHUNK_CELLS; i++) {
+                if (chunk[i] == defaultValue) continue;
+                int x = baseX + (i & CHUNK_MASK);
+                int y = baseY + (i >> CHUNK_SHIFT);
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                found = true;
+            }
+        }
+        return found ? new int[] { minX, minY, maxX, maxY } : null;
+    }
+
+    /**
+     * Minden cellát alapállapotba állít (a darabok újrahasznosulnak).
+     */
+    public void clear() {
+        for (int slot = 0; slot < chunks.capacity(); slot++) {
+            byte[] chunk = chunks.valueAt(slot);
+            if (chunk != null) spareChunks.push(chunk);
+        }
+        chunks.clear();
+        cacheValid = false;
+        modCount++;
+    }
+
+    /**
+     * Átméretezi a megjelenített ablakot. A tartalom törlődik, ahogy a korlátos rácsnál is.
+     */
+    @Override
+    public void resize(int newWidth, int newHeight) {
+        viewWidth = newWidth;
+        viewHeight = newHeight;
+        chunks.clear();
+        cacheValid = false;
+        modCount++;
+    }
+}
@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * Egy teljes generációt egyszerre léptető motor.
+ * A cellánkénti SimulationRule.calculateNextState helyett használható gyorsított út;
+ * ha a motor az adott szabályt nem támogatja, a vezérlő a cellánkénti úton lép.
+ */
+public interface StepEngine {
+
+    /**
+     * Meg tudja-e valósítani a motor az adott szabályrendszert.
+     */
+    boolean supports(SimulationRule rule);
+
+    /**
+     * Egy generációval lépteti a rácsot az adott szabály szerint.
+     * Az eredmény a rácsba kerül vissza, ugyanúgy, mintha cellánként számoltuk volna.
+     */
+    void step(Grid grid, SimulationRule rule);
+
+    /**
+     * Jelzi, hogy a felhasználó egy cellát átírt (a setCell hívása után).
+     * A saját állapotot tartó motorok ebből fokozatosan frissülhetnek.
+     */
+    default void cellChanged(Grid grid, int x, int y) {
+    }
+}
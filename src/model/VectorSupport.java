@@ -0,0 +1,63 @@
+package model;
+
+/**
+ * A Vector API-s (SIMD) lépéskernel elérhetősége és bekapcsolása.
+ * Ez az osztály nem hivatkozik a jdk.incubator.vector modulra: a kernelt (src-vector/model/VectorKernels)
+ * név szerint tölti be. Ha a modul vagy a lefordított kernel hiányzik, a kernel nem kapcsolható be,
+ * és a skalár út fut.
+ *
+ * A kernel külön fordul, az src kimenetére (pl. bin) építve:
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/model/VectorKernels.java
+ * Bekapcsolás: --add-modules jdk.incubator.vector és -Dgameoflife.vector=true,
+ * vagy futás közben a setEnabled hívással.
+ */
+public final class VectorSupport {
+
+    private static final String KERNEL_CLASS = "model.VectorKernels";
+
+    private static final SimdKernel KERNEL = loadKernel();
+    private static final boolean AVAILABLE = KERNEL != null;
+
+    private static volatile boolean enabled = AVAILABLE && Boolean.getBoolean("gameoflife.vector");
+
+    private VectorSupport() {
+    }
+
+    private static SimdKernel loadKernel() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return Class.forName(KERNEL_CLASS).asSubclass(SimdKernel.class)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // A kernel nincs lefordítva (csak az src fordult)
+            return null;
+        }
+    }
+
+    /**
+     * Betöltődött-e a jdk.incubator.vector modul és a lefordított kernel.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A betöltött kernel; csak isEnabled() után hívható.
+     */
+    static SimdKernel kernel() {
+        return KERNEL;
+    }
+
+    /**
+     * Be- vagy kikapcsolja a SIMD kernelt. Ha a modul nem elérhető, a kernel kikapcsolva marad.
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value && AVAILABLE;
+    }
+}
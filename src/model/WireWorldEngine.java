@@ -0,0 +1,243 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Eseményvezérelt Wireworld motor.
+ * A vezetékcellákból (vezető, fej, farok) egyszer felépíti a szomszédsági gráfot
+ * (ugyanazzal az ortogonális szomszédsággal, mint a WireWorldRule), és minden lépésben
+ * csak az aktuális fejekből terjeszt. A lépés költsége így az elektronok számával arányos,
+ * nem a rács méretével.
+ *
+ * A felhasználói szerkesztéseket (GameController.paintCell) a cellChanged hívás
+ * fokozatosan vezeti át a gráfba; minden más külső módosítás után a gráf újraépül.
+ */
+public class WireWorldEngine implements StepEngine {
+
+    private static final byte EMPTY = (byte) CellState.EMPTY.ordinal();
+    private static final byte CONDUCTOR = (byte) CellState.CONDUCTOR.ordinal();
+    private static final byte HEAD = (byte) CellState.HEAD.ordinal();
+    private static final byte TAIL = (byte) CellState.TAIL.ordinal();
+
+    private Grid syncedGrid;
+    private int syncedModCount;
+    private int width;
+    private int height;
+
+    // Cellaindex -> csúcs (-1, ha nincs vezeték), és a csúcsok adatai
+    private int[] nodeOfCell = new int[0];
+    private int[] cellOfNode = new int[0];
+    private byte[] nodeState = new byte[0];
+    private int[] neighbours = new int[0];   // csúcsonként 4: bal, jobb, fel, le (-1, ha nincs)
+    private int nodeCount;
+    private int[] freeNodes = new int[0];
+    private int freeCount;
+
+    // Aktuális fejek és farkak, valamint a lépés segédtömbjei
+    private int[] heads = new int[0];
+    private int headCount;
+    private int[] tails = new int[0];
+    private int tailCount;
+    private int[] headNeighbourCount = new int[0];
+    private int[] touched = new int[0];
+    private int[] newHeads = new int[0];
+    private boolean listsDirty;
+
+    @Override
+    public boolean supports(SimulationRule rule) {
+        return rule instanceof WireWorldRule;
+    }
+
+    @Override
+    public void step(Grid grid, SimulationRule rule) {
+        if (grid != syncedGrid || grid.getModCount() != syncedModCount
+                || grid.getWidth() != width || grid.getHeight() != height) {
+            rebuild(grid);
+        }
+        if (listsDirty) {
+            collectElectrons();
+        }
+
+        // 1. A fejek szomszédos vezetőinek megszámoljuk a fej-szomszédait
+        int touchedCount = 0;
+        for (int i = 0; i < headCount; i++) {
+            int base = heads[i] * 4;
+            for (int d = 0; d < 4; d++) {
+                int n = neighbours[base + d];
+                if (n >= 0 && nodeState[n] == CONDUCTOR && headNeighbourCount[n]++ == 0) {
+                    touched[touchedCount++] = n;
+                }
+            }
+        }
+        int newHeadCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int n = touched[i];
+            int count = headNeighbourCount[n];
+            headNeighbourCount[n] = 0;
+            if (count == 1 || count == 2) {
+                newHeads[newHeadCount++] = n;
+            }
+        }
+
+        // 2. Farok -> Vezető, Fej -> Farok, új fejek
+        for (int i = 0; i < tailCount; i++) {
+            setNode(grid, tails[i], CONDUCTOR);
+        }
+        for (int i = 0; i < headCount; i++) {
+            setNode(grid, heads[i], TAIL);
+        }
+        for (int i = 0; i < newHeadCount; i++) {
+            setNode(grid, newHeads[i], HEAD);
+        }
+
+        int[] swap = tails;
+        tails = heads;
+        tailCount = headCount;
+        heads = newHeads;
+        headCount = newHeadCount;
+        newHeads = swap;
+
+        syncedModCount = grid.getModCount();
+    }
+
+    private void setNode(Grid grid, int node, byte state) {
+        nodeState[node] = state;
+        int cell = cellOfNode[node];
+        grid.setCell(cell % width, cell / width, Grid.stateOf(state));
+    }
+
+    /**
+     * Egy szerkesztett cella átvezetése a gráfba. Ha közben a rács máshogy is változott,
+     * a következő lépés teljesen újraépíti a gráfot.
+     */
+    @Override
+    public void cellChanged(Grid grid, int x, int y) {
+        if (grid != syncedGrid || grid.getModCount() != syncedModCount + 1
+                || x < 0 || x >= width || y < 0 || y >= height) {
+            return;
+        }
+        int cell = y * width + x;
+        byte state = (byte) grid.getCell(x, y).ordinal();
+        int node = nodeOfCell[cell];
+
+        if (state == CONDUCTOR || state == HEAD || state == TAIL) {
+            if (node < 0) {
+                node = addNode(cell);
+            }
+            nodeState[node] = state;
+        } else if (state == EMPTY) {
+            if (node >= 0) {
+                removeNode(node);
+            }
+        } else {
+            // Nem Wireworld állapot: ritka eset, inkább újraépítjük
+            return;
+        }
+        listsDirty = true;
+        syncedModCount = grid.getModCount();
+    }
+
+    /**
+     * A teljes gráf felépítése a rácsból.
+     */
+    private void rebuild(Grid grid) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        int cells = width * height;
+        if (nodeOfCell.length != cells) {
+            nodeOfCell = new int[cells];
+        }
+        Arrays.fill(nodeOfCell, -1);
+        nodeCount = 0;
+        freeCount = 0;
+
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            grid.getRow(y, row, 0);
+            for (int x = 0; x < width; x++) {
+                byte state = row[x];
+                if (state == CONDUCTOR || state == HEAD || state == TAIL) {
+                    int node = addNode(y * width + x);
+                    nodeState[node] = state;
+                } else if (state != EMPTY) {
+                    // A cellánkénti szabály minden nem Wireworld állapotot Üresre állít
+                    grid.setCell(x, y, CellState.EMPTY);
+                }
+            }
+        }
+        syncedGrid = grid;
+        syncedModCount = grid.getModCount();
+        collectElectrons();
+    }
+
+    private int addNode(int cell) {
+        int node;
+        if (freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            node = nodeCount++;
+            ensureCapacity(nodeCount);
+        }
+        nodeOfCell[cell] = node;
+        cellOfNode[node] = cell;
+        nodeState[node] = CONDUCTOR;
+
+        // Kétirányú élek a már meglévő ortogonális szomszédokkal
+        int x = cell % width;
+        int y = cell / width;
+        link(node, 0, x > 0 ? nodeOfCell[cell - 1] : -1, 1);
+        link(node, 1, x < width - 1 ? nodeOfCell[cell + 1] : -1, 0);
+        link(node, 2, y > 0 ? nodeOfCell[cell - width] : -1, 3);
+        link(node, 3, y < height - 1 ? nodeOfCell[cell + width] : -1, 2);
+        return node;
+    }
+
+    private void link(int node, int direction, int other, int opposite) {
+        neighbours[node * 4 + direction] = other;
+        if (other >= 0) {
+            neighbours[other * 4 + opposite] = node;
+        }
+    }
+
+    private void removeNode(int node) {
+        for (int d = 0; d < 4; d++) {
+            int other = neighbours[node * 4 + d];
+            if (other >= 0) {
+                neighbours[other * 4 + (d ^ 1)] = -1;
+            }
+            neighbours[node * 4 + d] = -1;
+        }
+        nodeOfCell[cellOfNode[node]] = -1;
+        nodeState[node] = EMPTY;
+        if (freeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, Math.max(16, freeCount * 2));
+        }
+        freeNodes[freeCount++] = node;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= cellOfNode.length) return;
+        int capacity = Math.max(nodes, Math.max(64, cellOfNode.length * 2));
+        cellOfNode = Arrays.copyOf(cellOfNode, capacity);
+        nodeState = Arrays.copyOf(nodeState, capacity);
+        neighbours = Arrays.copyOf(neighbours, capacity * 4);
+        heads = Arrays.copyOf(heads, capacity);
+        tails = Arrays.copyOf(tails, capacity);
+        newHeads = Arrays.copyOf(newHeads, capacity);
+        touched = Arrays.copyOf(touched, capacity);
+        headNeighbourCount = Arrays.copyOf(headNeighbourCount, capacity);
+    }
+
+    /**
+     * A fej- és faroklisták összegyűjtése a csúcsok állapotából (újraépítés vagy szerkesztés után).
+     */
+    private void collectElectrons() {
+        headCount = 0;
+        tailCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeState[node] == HEAD) heads[headCount++] = node;
+            else if (nodeState[node] == TAIL) tails[tailCount++] = node;
+        }
+        listsDirty = false;
+    }
+}
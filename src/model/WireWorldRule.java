@@ -43,6 +43,63 @@ public class WireWorldRule implements SimulationRule {
         }
     }
 
+
+    /**
+     * Gyors út egy téglalapra: közvetlenül a rács tömbjein, ugyanazzal
+     * a négy szabállyal és ortogonális szomszédsággal, mint a cellánkénti változat.
+     */
+    @Override
+    public boolean stepRegion(Grid grid, int fromX, int fromY, int toX, int toY) {
+        if (!grid.isArrayBacked()) {
+            return SimulationRule.super.stepRegion(grid, fromX, fromY, toX, toY);
+        }
+        if (VectorSupport.isEnabled() && grid.getDefaultState() != CellState.HEAD) {
+            return VectorSupport.kernel().stepWireWorld(this, grid, fromX, fromY, toX, toY);
+        }
+        return stepScalar(grid, fromX, fromY, toX, toY);
+    }
+
+    /**
+     * A skalár út; a SIMD kernel a sorok szélein és maradékán ezt hívja.
+     */
+    boolean stepScalar(Grid grid, int fromX, int fromY, int toX, int toY) {
+        byte[] cells = grid.currentCells();
+        byte[] next = grid.nextCells();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        final byte empty = (byte) CellState.EMPTY.ordinal();
+        final byte conductor = (byte) CellState.CONDUCTOR.ordinal();
+        final byte head = (byte) CellState.HEAD.ordinal();
+        final byte tail = (byte) CellState.TAIL.ordinal();
+        int outsideHead = grid.getDefaultState() == CellState.HEAD ? 1 : 0;
+
+        boolean changed = false;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * width;
+            for (int x = fromX; x < toX; x++) {
+                byte current = cells[row + x];
+                byte value;
+                if (current == head) {
+                    value = tail;
+                } else if (current == tail) {
+                    value = conductor;
+                } else if (current == conductor) {
+                    int heads = (x > 0 ? (cells[row + x - 1] == head ? 1 : 0) : outsideHead)
+                              + (x < width - 1 ? (cells[row + x + 1] == head ? 1 : 0) : outsideHead)
+                              + (y > 0 ? (cells[row + x - width] == head ? 1 : 0) : outsideHead)
+                              + (y < height - 1 ? (cells[row + x + width] == head ? 1 : 0) : outsideHead);
+                    value = heads == 1 || heads == 2 ? head : conductor;
+                } else {
+                    value = empty;
+                }
+                next[row + x] = value;
+                if (value != current) {
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
     
     /*
      * A szomszédos fejeket megszámoljuk
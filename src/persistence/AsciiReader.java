@@ -0,0 +1,94 @@
+package persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Egyszerű, pufferelt byte-olvasó ASCII mintafájlokhoz (RLE, Macrocell).
+ * Cellánként nem hoz létre objektumot: a számokat és a jeleket közvetlenül a pufferből olvassa.
+ */
+final class AsciiReader implements AutoCloseable {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+
+    AsciiReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * A következő byte (0-255), vagy -1 a fájl végén.
+     */
+    int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * A következő byte elolvasás nélkül, vagy -1 a fájl végén.
+     */
+    int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Átugorja a szóközöket és tabulátorokat (a sorvégeket nem).
+     */
+    void skipSpaces() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t') {
+            position++;
+        }
+    }
+
+    /**
+     * Egy nemnegatív egész szám a szóközök után.
+     */
+    long readNumber() throws IOException {
+        skipSpaces();
+        int c = peek();
+        if (c < '0' || c > '9') {
+            if (c < 0) throw new EOFException("Váratlan fájlvég");
+            throw new IOException("Számot vártunk, de ez jött: '" + (char) c + "'");
+        }
+        long value = 0;
+        while ((c = peek()) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            position++;
+        }
+        return value;
+    }
+
+    /**
+     * A sor hátralévő része sorvég nélkül (fejlécekhez és megjegyzésekhez), vagy null a fájl végén.
+     */
+    String readLine() throws IOException {
+        if (peek() < 0) return null;
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            if (c != '\r') line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
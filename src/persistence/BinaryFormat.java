@@ -0,0 +1,385 @@
+package persistence;
+
+import model.CellState;
+import model.GameOfLifeRule;
+import model.Grid;
+import model.SimulationRule;
+import model.WireWorldRule;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Tömör, verziózott bináris mentési formátum (.golb), NIO csatornákon írva és olvasva.
+ *
+ * Fejléc (20 byte, big-endian, sosem tömörített):
+ *   0  "GOLB"            azonosító
+ *   4  verzió (byte)     jelenleg 1
+ *   5  jelzők (byte)     0. bit: a törzs Deflate-tel tömörített
+ *   6  típus (byte)      0 = GAMEOFLIFE, 1 = WIREWORLD
+ *   7  kódolás (byte)    0 = futáshossz (RLE), 1 = bitcsomagolt
+ *   8  szélesség (int)
+ *   12 magasság (int)
+ *   16 túlélési maszk (short)  n. bit: n szomszéd mellett túlél
+ *   18 születési maszk (short)
+ *
+ * Törzs, sorfolytonosan:
+ *   RLE:           (állapot byte = CellState ordinális, hossz előjel nélküli LEB128 varint) párok,
+ *                  a futások sorhatáron is átnyúlhatnak
+ *   bitcsomagolt:  soronként (szélesség+7)/8 byte, a 0. bit a sor első cellája, 1 = ALIVE
+ *                  (csak olyan rácsnál, ahol minden cella DEAD vagy ALIVE)
+ */
+final class BinaryFormat {
+
+    static final byte[] MAGIC = { 'G', 'O', 'L', 'B' };
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    // Egy oldal legnagyobb hossza: a sorpuffer a fejléc alapján foglalódik, a cellaadat ellenőrzése előtt
+    static final int MAX_SIDE = 1 << 24;
+
+    private static final int FLAG_DEFLATE = 1;
+    private static final int TYPE_GAME_OF_LIFE = 0;
+    private static final int TYPE_WIREWORLD = 1;
+    private static final int ENCODING_RLE = 0;
+    private static final int ENCODING_BITS = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryFormat() {
+    }
+
+    static void write(Path path, Grid grid, SimulationRule rule, boolean compress) throws IOException {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        if (width > MAX_SIDE || height > MAX_SIDE) {
+            // Ilyen fejlécet a betöltés elutasítana
+            throw new IOException("A rács túl nagy a bináris formátumhoz: " + width + "x" + height);
+        }
+        byte[] row = new byte[width];
+
+        // Első menet: a futáshossz-kódolás mérete, és hogy bitcsomagolható-e a rács
+        boolean packable = rule instanceof GameOfLifeRule;
+        long rleSize = 0;
+        byte runState = 0;
+        long runLength = 0;
+        byte dead = (byte) CellState.DEAD.ordinal();
+        byte alive = (byte) CellState.ALIVE.ordinal();
+        for (int y = 0; y < height; y++) {
+            grid.getRow(y, row, 0);
+            for (int x = 0; x < width; x++) {
+                byte value = row[x];
+                packable &= value == dead || value == alive;
+                if (runLength > 0 && value == runState) {
+                    runLength++;
+                } else {
+                    if (runLength > 0) rleSize += 1 + varintLength(runLength);
+                    runState = value;
+                    runLength = 1;
+                }
+            }
+        }
+        if (runLength > 0) rleSize += 1 + varintLength(runLength);
+        long bitsSize = (long) height * ((width + 7) / 8);
+        int encoding = packable && bitsSize < rleSize ? ENCODING_BITS : ENCODING_RLE;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC);
+        header.put((byte) VERSION);
+        header.put((byte) (compress ? FLAG_DEFLATE : 0));
+        header.put((byte) (rule instanceof WireWorldRule ? TYPE_WIREWORLD : TYPE_GAME_OF_LIFE));
+        header.put((byte) encoding);
+        header.putInt(width);
+        header.putInt(height);
+        if (rule instanceof GameOfLifeRule) {
+            GameOfLifeRule golRule = (GameOfLifeRule) rule;
+            header.putShort((short) toMask(golRule.getSurvivalRules()));
+            header.putShort((short) toMask(golRule.getBirthRules()));
+        } else {
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            Sink sink = new Sink(channel, compress);
+            if (encoding == ENCODING_BITS) {
+                for (int y = 0; y < height; y++) {
+                    grid.getRow(y, row, 0);
+                    for (int x = 0; x < width; x += 8) {
+                        int packed = 0;
+                        int end = Math.min(x + 8, width);
+                        for (int i = x; i < end; i++) {
+                            if (row[i] == alive) packed |= 1 << (i - x);
+                        }
+                        sink.put((byte) packed);
+                    }
+                }
+            } else {
+                runLength = 0;
+                for (int y = 0; y < height; y++) {
+                    grid.getRow(y, row, 0);
+                    for (int x = 0; x < width; x++) {
+                        byte value = row[x];
+                        if (runLength > 0 && value == runState) {
+                            runLength++;
+                        } else {
+                            if (runLength > 0) sink.putRun(runState, runLength);
+                            runState = value;
+                            runLength = 1;
+                        }
+                    }
+                }
+                if (runLength > 0) sink.putRun(runState, runLength);
+            }
+            sink.finish();
+        }
+    }
+
+    static SimulationState read(Path path, ProgressListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new EOFException("Csonka fejléc");
+            }
+            header.flip();
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get() != MAGIC[i]) throw new IOException("Nem bináris mentés");
+            }
+            int version = header.get();
+            if (version != VERSION) {
+                throw new IOException("Nem támogatott formátumverzió: " + version);
+            }
+            int flags = header.get();
+            int type = header.get();
+            int encoding = header.get();
+            int width = header.getInt();
+            int height = header.getInt();
+            int survivalMask = header.getShort();
+            int birthMask = header.getShort();
+
+            if (width < 0 || height < 0 || width > MAX_SIDE || height > MAX_SIDE
+                    || (width == 0) != (height == 0) || (long) width * height > Integer.MAX_VALUE - 8) {
+                throw new IOException("Érvénytelen rácsméret: " + width + "x" + height);
+            }
+
+            SimulationRule rule;
+            CellState defaultState;
+            if (type == TYPE_WIREWORLD) {
+                rule = new WireWorldRule();
+                defaultState = CellState.EMPTY;
+            } else if (type == TYPE_GAME_OF_LIFE) {
+                GameOfLifeRule golRule = new GameOfLifeRule();
+                golRule.setRules(fromMask(survivalMask), fromMask(birthMask));
+                rule = golRule;
+                defaultState = CellState.DEAD;
+            } else {
+                throw new IOException("Ismeretlen szimulációtípus: " + type);
+            }
+
+            Grid grid = new Grid(width, height, defaultState);
+            Source source = new Source(channel, (flags & FLAG_DEFLATE) != 0);
+            byte[] row = new byte[width];
+            if (encoding == ENCODING_BITS) {
+                byte dead = (byte) CellState.DEAD.ordinal();
+                byte alive = (byte) CellState.ALIVE.ordinal();
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x += 8) {
+                        int packed = source.get() & 0xFF;
+                        int end = Math.min(x + 8, width);
+                        for (int i = x; i < end; i++) {
+                            row[i] = (packed & (1 << (i - x))) != 0 ? alive : dead;
+                        }
+                    }
+                    grid.setRow(y, row, 0);
+                    FileManager.rowLoaded(listener, y, height);
+                }
+            } else if (encoding == ENCODING_RLE) {
+                int stateCount = CellState.values().length;
+                byte state = 0;
+                long remaining = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        if (remaining == 0) {
+                            state = source.get();
+                            remaining = source.getVarint();
+                            if (state < 0 || state >= stateCount || remaining <= 0) {
+                                throw new IOException("Sérült cellaadat");
+                            }
+                        }
+                        row[x] = state;
+                        remaining--;
+                    }
+                    grid.setRow(y, row, 0);
+                    FileManager.rowLoaded(listener, y, height);
+                }
+            } else {
+                throw new IOException("Ismeretlen cellakódolás: " + encoding);
+            }
+            source.finish();
+            return new SimulationState(grid, rule);
+        }
+    }
+
+    static int toMask(Set<Integer> counts) {
+        int mask = 0;
+        for (int n : counts) {
+            if (n >= 0 && n <= 8) mask |= 1 << n;
+        }
+        return mask;
+    }
+
+    static Set<Integer> fromMask(int mask) {
+        Set<Integer> counts = new HashSet<>();
+        for (int n = 0; n <= 8; n++) {
+            if ((mask & (1 << n)) != 0) counts.add(n);
+        }
+        return counts;
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Pufferelt író a csatornára, opcionális Deflate tömörítéssel.
+     */
+    private static final class Sink {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final Deflater deflater;
+        private final ByteBuffer compressed;
+
+        Sink(FileChannel channel, boolean compress) {
+            this.channel = channel;
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            this.compressed = compress ? ByteBuffer.allocateDirect(BUFFER_SIZE) : null;
+        }
+
+        void put(byte value) throws IOException {
+            if (!buffer.hasRemaining()) drain();
+            buffer.put(value);
+        }
+
+        void putRun(byte state, long length) throws IOException {
+            put(state);
+            while ((length & ~0x7FL) != 0) {
+                put((byte) ((length & 0x7F) | 0x80));
+                length >>>= 7;
+            }
+            put((byte) length);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            if (deflater == null) {
+                writeFully(channel, buffer);
+            } else {
+                deflater.setInput(buffer);
+                while (!deflater.needsInput()) {
+                    deflateInto();
+                }
+            }
+            buffer.clear();
+        }
+
+        private void deflateInto() throws IOException {
+            compressed.clear();
+            deflater.deflate(compressed);
+            compressed.flip();
+            writeFully(channel, compressed);
+        }
+
+        void finish() throws IOException {
+            drain();
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflateInto();
+                }
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Pufferelt olvasó a csatornáról, opcionális Deflate kitömörítéssel.
+     */
+    private static final class Source {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final Inflater inflater;
+        private final ByteBuffer raw;
+
+        Source(FileChannel channel, boolean compressed) {
+            this.channel = channel;
+            this.inflater = compressed ? new Inflater() : null;
+            this.raw = compressed ? ByteBuffer.allocateDirect(BUFFER_SIZE) : null;
+            buffer.flip();
+            if (raw != null) raw.flip();
+        }
+
+        byte get() throws IOException {
+            if (!buffer.hasRemaining()) fill();
+            return buffer.get();
+        }
+
+        long getVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Sérült hosszmező");
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            if (inflater == null) {
+                while (buffer.position() == 0) {
+                    if (channel.read(buffer) < 0) throw new EOFException("Váratlan fájlvég");
+                }
+            } else {
+                try {
+                    while (buffer.position() == 0) {
+                        if (inflater.finished()) throw new EOFException("Váratlan adatvég");
+                        if (inflater.needsInput()) {
+                            raw.compact();
+                            int read = channel.read(raw);
+                            raw.flip();
+                            if (read < 0) throw new EOFException("Váratlan fájlvég");
+                            inflater.setInput(raw);
+                        }
+                        inflater.inflate(buffer);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Sérült tömörített adat", e);
+                }
+            }
+            buffer.flip();
+        }
+
+        void finish() {
+            if (inflater != null) inflater.end();
+        }
+    }
+}
@@ -1,96 +1,402 @@
 package persistence;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import model.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- * A szimuláció mentését és betöltését végző osztály JSON formátumban.
- * A Google Gson könyvtárat használja a szerializációhoz.
+ * A szimuláció mentését és betöltését végző osztály JSON, tömör bináris vagy RLE formátumban,
+ * betöltéskor a Macrocell (.mc) mintákat is beolvassa.
+ * A JSON-t a Gson JsonWriter/JsonReader osztályaival folyamként kezeli: a cellák
+ * közvetlenül a rácsból íródnak ki, betöltéskor pedig soronként kerülnek a rácsba,
+ * így nem jön létre a teljes rácsot másoló köztes tömb. A bináris formátumot a BinaryFormat írja.
+ * A memóriába képezett rácsfájlok (.golm) betöltése csak leképezés, mentésük csak flush.
+ *
+ * A JSON séma (változatlan):
+ * { "width": int, "height": int, "type": "GAMEOFLIFE" | "WIREWORLD",
+ *   "cells": [[CellState név, ...], ...],
+ *   "survivalRules": [int, ...], "birthRules": [int, ...] }   (az utóbbi kettő csak Életjátéknál)
  */
 public class FileManager {
 
-    private final Gson gson;
-
-    public FileManager() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-    }
+    private static final CellState[] STATES = CellState.values();
 
     /**
-     * Elmenti a rács állapotát és a szabályokat egy JSON fájlba.
+     * Elmenti a rács állapotát és a szabályokat; .golb kiterjesztésnél binárisan, .rle-nél RLE-ben, egyébként JSON-ben.
      * @param file A célfájl.
      * @param grid A mentendő rács.
      * @param rule A mentendő szabályrendszer.
      */
     public void saveSimulation(File file, Grid grid, SimulationRule rule) throws IOException {
-        SimulationSaveData data = new SimulationSaveData();
-        
-        data.width = grid.getWidth();
-        data.height = grid.getHeight();
-        
-        data.cells = new CellState[data.height][data.width];
-        for (int y = 0; y < data.height; y++) {
-            for (int x = 0; x < data.width; x++) {
-                data.cells[y][x] = grid.getCell(x, y);
+        saveSimulation(file, grid, rule, SaveFormat.forFile(file));
+    }
+
+    /**
+     * Elmenti a rács állapotát és a szabályokat a megadott formátumban.
+     */
+    public void saveSimulation(File file, Grid grid, SimulationRule rule, SaveFormat format) throws IOException {
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        try {
+            write(file, grid, rule, format);
+            event.succeeded = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.format = format.name();
+                event.bytes = file.length();
+                event.commit();
             }
         }
+    }
+
+    private void write(File file, Grid grid, SimulationRule rule, SaveFormat format) throws IOException {
+        if (isBackedBy(grid, file)) {
+            // A rács már ebben a fájlban él: a mentés csak flush
+            MappedFormat.flush((MappedGrid) grid, rule);
+            return;
+        }
+        if (!grid.isBounded() && format != SaveFormat.RLE) {
+            // A JSON és a bináris formátum csak a megjelenített ablakot tudná leírni
+            throw new IOException("Korlátlan rács csak RLE formátumban menthető el veszteség nélkül");
+        }
+        switch (format) {
+            case BINARY:
+            case BINARY_COMPRESSED:
+                BinaryFormat.write(file.toPath(), grid, rule, format == SaveFormat.BINARY_COMPRESSED);
+                return;
+            case RLE:
+                RleFormat.write(file.toPath(), grid, rule);
+                return;
+            default:
+                break;
+        }
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("width").value(width);
+            writer.name("height").value(height);
+            if (rule instanceof WireWorldRule) {
+                writer.name("type").value("WIREWORLD");
+            } else if (rule instanceof GameOfLifeRule) {
+                writer.name("type").value("GAMEOFLIFE");
+            }
+
+            writer.name("cells").beginArray();
+            byte[] row = new byte[width];
+            for (int y = 0; y < height; y++) {
+                grid.getRow(y, row, 0);
+                writer.beginArray();
+                for (int x = 0; x < width; x++) {
+                    writer.value(STATES[row[x]].name());
+                }
+                writer.endArray();
+            }
+            writer.endArray();
 
-        if (rule instanceof WireWorldRule) {
-            data.type = "WIREWORLD";
-            data.survivalRules = null;
-            data.birthRules = null;
-        } else if (rule instanceof GameOfLifeRule) {
-            data.type = "GAMEOFLIFE";
-            GameOfLifeRule golRule = (GameOfLifeRule) rule;
-            data.survivalRules = golRule.getSurvivalRules();
-            data.birthRules = golRule.getBirthRules();
+            if (rule instanceof GameOfLifeRule) {
+                GameOfLifeRule golRule = (GameOfLifeRule) rule;
+                writeIntArray(writer, "survivalRules", golRule.getSurvivalRules());
+                writeIntArray(writer, "birthRules", golRule.getBirthRules());
+            }
+            writer.endObject();
         }
+    }
+
+    /**
+     * Új, memóriába képezett rácsfájlon alapuló szimuláció a heapnél nagyobb pályákhoz.
+     * A fájl egyben a mentés is: a további mentések csak flush-t jelentenek.
+     */
+    public SimulationState createMappedSimulation(File file, int width, int height, SimulationRule rule) throws IOException {
+        return new SimulationState(MappedFormat.create(file.toPath(), width, height, rule), rule);
+    }
+
+    /**
+     * Igaz, ha a rács a megadott fájlba van leképezve (ideiglenes fájl esetén soha).
+     */
+    public static boolean isBackedBy(Grid grid, File file) throws IOException {
+        if (!(grid instanceof MappedGrid)) return false;
+        MappedGrid mapped = (MappedGrid) grid;
+        return !mapped.isTemporary() && file.exists() && Files.isSameFile(mapped.getFile(), file.toPath());
+    }
 
-        try (Writer writer = new FileWriter(file)) {
-            gson.toJson(data, writer);
+    private static void writeIntArray(JsonWriter writer, String name, Set<Integer> values) throws IOException {
+        writer.name(name).beginArray();
+        for (int value : values) {
+            writer.value(value);
         }
+        writer.endArray();
     }
 
     /**
      * Betölt egy korábban mentett szimulációt.
      * Visszaállítja a rácsot, a cellákat és a szabályrendszert.
+     * A formátumot (JSON, bináris, RLE, Macrocell vagy leképezett rácsfájl) a fájl eleje alapján ismeri fel;
+     * a mintafájlok a méretüktől függően korlátos vagy ritka rácsba kerülnek.
      * @return SimulationState objektum, ami tartalmazza a rácsot és a szabályt.
      */
     public SimulationState loadSimulation(File file) throws IOException {
-        SimulationSaveData data;
-        try (Reader reader = new FileReader(file)) {
-            data = gson.fromJson(reader, SimulationSaveData.class);
+        return loadSimulation(file, null);
+    }
+
+    /**
+     * Betöltés folyamatjelzéssel. A listener minden beolvasott sor után hívódik
+     * (a betöltő szálon). Ha a betöltő szálat megszakítják, InterruptedIOException keletkezik.
+     */
+    public SimulationState loadSimulation(File file, ProgressListener listener) throws IOException {
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        InputFormat format = null;
+        try {
+            format = detectFormat(file.toPath());
+            SimulationState state = read(file, format, listener);
+            event.succeeded = true;
+            return state;
+        } catch (ClosedByInterruptException e) {
+            // A csatornás olvasók (bináris, leképezett) megszakítása is a dokumentált kivétellel jelez
+            InterruptedIOException interrupted = new InterruptedIOException("A betöltés megszakadt");
+            interrupted.initCause(e);
+            throw interrupted;
+        } finally {
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.format = format != null ? format.name() : null;
+                event.bytes = file.length();
+                event.commit();
+            }
+        }
+    }
+
+    private SimulationState read(File file, InputFormat format, ProgressListener listener) throws IOException {
+        switch (format) {
+            case BINARY:
+                return BinaryFormat.read(file.toPath(), listener);
+            case RLE:
+                return RleFormat.read(file.toPath(), listener);
+            case MACROCELL:
+                return MacrocellFormat.read(file.toPath());
+            case MAPPED:
+                return MappedFormat.read(file.toPath());
+            default:
+                break;
         }
 
-        CellState defaultState = "WIREWORLD".equals(data.type) ? CellState.EMPTY : CellState.DEAD;
-        Grid grid = new Grid(data.width, data.height, defaultState);
+        int width = 0;
+        int height = 0;
+        String type = null;
+        Grid grid = null;
+        List<byte[]> pendingRows = null;
+        Set<Integer> survivalRules = null;
+        Set<Integer> birthRules = null;
 
-        if (data.cells != null) {
-            for (int y = 0; y < data.height; y++) {
-                for (int x = 0; x < data.width; x++) {
-                    if (y < data.cells.length && x < data.cells[y].length) {
-                        grid.setCell(x, y, data.cells[y][x]);
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "width":
+                        width = reader.nextInt();
+                        break;
+                    case "height":
+                        height = reader.nextInt();
+                        break;
+                    case "type":
+                        type = nextStringOrNull(reader);
+                        break;
+                    case "cells":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else if (type != null && width > 0 && height > 0) {
+                            // A szokásos mezősorrend: a rács már most létrehozható, a sorok egyenesen bele kerülnek
+                            grid = new Grid(width, height, defaultStateFor(type));
+                            readCells(reader, grid, null, listener);
+                        } else {
+                            // Ismeretlen méret vagy típus: a sorokat a fejléc mezőiig félretesszük
+                            pendingRows = new ArrayList<>();
+                            readCells(reader, null, pendingRows, listener);
+                        }
+                        break;
+                    case "survivalRules":
+                        survivalRules = readIntSet(reader);
+                        break;
+                    case "birthRules":
+                        birthRules = readIntSet(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Hibás mentésfájl: " + e.getMessage(), e);
+        }
+
+        if (grid == null) {
+            grid = new Grid(width, height, defaultStateFor(type));
+            if (pendingRows != null) {
+                for (int y = 0; y < height && y < pendingRows.size(); y++) {
+                    byte[] row = pendingRows.get(y);
+                    for (int x = 0; x < width && x < row.length; x++) {
+                        if (row[x] >= 0) grid.setCell(x, y, STATES[row[x]]);
                     }
                 }
             }
         }
 
         SimulationRule rule;
-        if ("WIREWORLD".equals(data.type)) {
+        if ("WIREWORLD".equals(type)) {
             rule = new WireWorldRule();
         } else {
             GameOfLifeRule golRule = new GameOfLifeRule();
-            if (data.survivalRules != null && data.birthRules != null) {
-                golRule.setRules(data.survivalRules, data.birthRules);
+            if (survivalRules != null && birthRules != null) {
+                golRule.setRules(survivalRules, birthRules);
             }
             rule = golRule;
         }
 
-        SimulationState state = new SimulationState();
-        state.grid = grid;
-        state.rule = rule;
-        return state;
+        return new SimulationState(grid, rule);
+    }
+
+    /**
+     * A fájl formátuma az első byte-jai alapján.
+     */
+    private static InputFormat detectFormat(Path path) throws IOException {
+        byte[] head = new byte[64];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+        }
+        if (length >= BinaryFormat.MAGIC.length
+                && Arrays.equals(Arrays.copyOf(head, BinaryFormat.MAGIC.length), BinaryFormat.MAGIC)) {
+            return InputFormat.BINARY;
+        }
+        if (MappedGrid.isMappedHeader(ByteBuffer.wrap(head, 0, length))) {
+            return InputFormat.MAPPED;
+        }
+        String text = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+        if (text.startsWith("\u00EF\u00BB\u00BF")) text = text.substring(3);   // UTF-8 BOM
+        text = text.stripLeading();
+        if (text.startsWith(MacrocellFormat.HEADER)) return InputFormat.MACROCELL;
+        if (text.startsWith("#") || text.startsWith("x")) return InputFormat.RLE;
+        return InputFormat.JSON;
+    }
+
+    private enum InputFormat { JSON, BINARY, RLE, MACROCELL, MAPPED }
+
+    /**
+     * A "cells" tömb beolvasása. Ha van célrács, a sorai közvetlenül bele kerülnek
+     * (a hiányzó cellák alapállapotúak, a fölöslegesek elmaradnak), különben a pending listába.
+     */
+    private static void readCells(JsonReader reader, Grid grid, List<byte[]> pending,
+                                  ProgressListener listener) throws IOException {
+        int width = grid != null ? grid.getWidth() : 0;
+        int height = grid != null ? grid.getHeight() : 0;
+        // A félretett sorokban a -1 az ismeretlen (alapállapotúra hagyandó) cella
+        byte defaultValue = grid != null ? (byte) grid.getDefaultState().ordinal() : -1;
+        byte[] row = new byte[Math.max(width, 16)];
+
+        reader.beginArray();
+        int y = 0;
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL || (grid != null && y >= height)) {
+                reader.skipValue();
+                y++;
+                continue;
+            }
+            if (grid != null) {
+                Arrays.fill(row, 0, width, defaultValue);
+            }
+            int x = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String name = nextStringOrNull(reader);
+                if (grid == null && x == row.length) {
+                    row = Arrays.copyOf(row, row.length * 2);
+                }
+                if (grid == null || x < width) {
+                    CellState state = stateOf(name);
+                    row[x] = state != null ? (byte) state.ordinal() : defaultValue;
+                }
+                x++;
+            }
+            reader.endArray();
+
+            if (grid != null) {
+                grid.setRow(y, row, 0);
+                rowLoaded(listener, y, height);
+            } else {
+                pending.add(Arrays.copyOf(row, x));
+                rowLoaded(listener, y, -1);
+            }
+            y++;
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Egy sor betöltése utáni közös lépés: folyamatjelzés és a megszakítás ellenőrzése.
+     * @param total A sorok száma, vagy -1, ha még nem ismert.
+     */
+    static void rowLoaded(ProgressListener listener, int row, int total) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("A betöltés megszakadt");
+        }
+        if (listener != null) {
+            listener.rowLoaded(row + 1, total);
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static Set<Integer> readIntSet(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Set<Integer> values = new HashSet<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(reader.nextInt());
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static CellState stateOf(String name) {
+        if (name == null) return null;
+        try {
+            return CellState.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static CellState defaultStateFor(String type) {
+        return "WIREWORLD".equals(type) ? CellState.EMPTY : CellState.DEAD;
     }
-}
\ No newline at end of file
+}
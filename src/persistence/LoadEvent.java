@@ -0,0 +1,30 @@
+package persistence;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR esemény a FileManager.loadSimulation hívásairól. Alapból ki van kapcsolva (lásd gameoflife.jfc).
+ */
+@Name("gameoflife.Load")
+@Label("Betöltés")
+@Category({ "Game of Life", "Fájlkezelés" })
+@Enabled(false)
+final class LoadEvent extends jdk.jfr.Event {
+
+    @Label("Fájl")
+    String path;
+
+    @Label("Formátum")
+    String format;
+
+    @Label("Méret")
+    @DataAmount
+    long bytes;
+
+    @Label("Sikeres")
+    boolean succeeded;
+}
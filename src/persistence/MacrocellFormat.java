@@ -0,0 +1,249 @@
+package persistence;
+
+import model.CellState;
+import model.Grid;
+import model.SimulationRule;
+import model.WireWorldRule;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A Golly Macrocell (.mc) formátum folyamszerű beolvasása.
+ *
+ *   [M2] (golly ...)
+ *   #R B3/S23
+ *   $$..*$...*$.***$     8x8-as levél (. halott, * élő, $ sorvég), 1-től számozva
+ *   4 0 1 0 1            k szintű csomópont: szint, ÉNy, ÉK, DNy, DK gyermek (0 = üres)
+ *
+ * Többállapotú szabálynál (Wireworld) a levelek 1. szintű, 2x2-es csomópontok:
+ * "1 a b c d", ahol a számok a Golly állapotai (0 üres, 1 fej, 2 farok, 3 vezető).
+ * Az utolsó csomópont a gyökér. A fát először a befoglaló téglalapjára méretezzük
+ * (a közös részfák egyszer számolódnak), majd csak a nem üres részfákat járjuk be.
+ */
+final class MacrocellFormat {
+
+    static final String HEADER = "[M2]";
+
+    private static final int LEAF_8X8 = -1;
+
+    // Csomópontok: szint (levélnél LEAF_8X8 vagy 1), gyermekek / cellák
+    private int[] levels = new int[1024];
+    private int[] children = new int[4096];
+    private long[] leafBits = new long[1024];
+    private int nodeCount = 1;   // a 0. csomópont az üres
+
+    // A csomópontokon belüli befoglaló téglalap (üres csomópontnál minX > maxX)
+    private long[] minX;
+    private long[] minY;
+    private long[] maxX;
+    private long[] maxY;
+
+    private MacrocellFormat() {
+    }
+
+    static SimulationState read(Path path) throws IOException {
+        return new MacrocellFormat().parse(path);
+    }
+
+    private SimulationState parse(Path path) throws IOException {
+        SimulationRule rule = RleFormat.parseRule(null);
+        try (AsciiReader in = new AsciiReader(Files.newInputStream(path))) {
+            String header = in.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                throw new IOException("Nem Macrocell fájl");
+            }
+
+            int c;
+            while ((c = in.peek()) >= 0) {
+                if (c == '#') {
+                    String line = in.readLine();
+                    if (line.startsWith("#R")) {
+                        rule = RleFormat.parseRule(line.substring(2));
+                    }
+                } else if (c == '.' || c == '*' || c == '$') {
+                    readLeaf(in);
+                } else if (c >= '0' && c <= '9') {
+                    readNode(in);
+                } else {
+                    in.readLine();
+                }
+                if ((nodeCount & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("A betöltés megszakadt");
+                }
+            }
+        }
+
+        boolean wireWorld = rule instanceof WireWorldRule;
+        CellState defaultState = wireWorld ? CellState.EMPTY : CellState.DEAD;
+        int root = nodeCount - 1;
+        if (root == 0) {
+            return new SimulationState(RleFormat.createGrid(1, 1, defaultState), rule);
+        }
+
+        minX = new long[nodeCount];
+        minY = new long[nodeCount];
+        maxX = new long[nodeCount];
+        maxY = new long[nodeCount];
+        Arrays.fill(minX, Long.MIN_VALUE);   // jelölés: még nincs kiszámolva
+        computeBounds(root);
+        if (minX[root] > maxX[root]) {
+            return new SimulationState(RleFormat.createGrid(1, 1, defaultState), rule);
+        }
+
+        Grid grid = RleFormat.createGrid(maxX[root] - minX[root] + 1, maxY[root] - minY[root] + 1, defaultState);
+        paint(grid, root, -minX[root], -minY[root], wireWorld);
+        return new SimulationState(grid, rule);
+    }
+
+    private int addNode(int level) throws IOException {
+        if (nodeCount == levels.length) {
+            levels = Arrays.copyOf(levels, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 8);
+            leafBits = Arrays.copyOf(leafBits, nodeCount * 2);
+        }
+        levels[nodeCount] = level;
+        return nodeCount++;
+    }
+
+    /**
+     * 8x8-as levél: soronként . és * jelek, $ zárja a sort (a sorvégi halott cellák elmaradnak).
+     */
+    private void readLeaf(AsciiReader in) throws IOException {
+        int node = addNode(LEAF_8X8);
+        long bits = 0;
+        int x = 0;
+        int y = 0;
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (c == '$') {
+                y++;
+                x = 0;
+            } else if (c == '*') {
+                if (x < 8 && y < 8) bits |= 1L << (y * 8 + x);
+                x++;
+            } else if (c == '.') {
+                x++;
+            }
+        }
+        leafBits[node] = bits;
+    }
+
+    private void readNode(AsciiReader in) throws IOException {
+        int level = (int) in.readNumber();
+        if (level < 1 || level > 62) {
+            throw new IOException("Érvénytelen csomópontszint: " + level);
+        }
+        int node = addNode(level);
+        for (int i = 0; i < 4; i++) {
+            long child = in.readNumber();
+            if (level > 1 && child >= node) {
+                throw new IOException("Előre hivatkozó csomópont: " + child);
+            }
+            children[node * 4 + i] = (int) child;
+        }
+        in.readLine();
+    }
+
+    private static long size(int level) {
+        return level == LEAF_8X8 ? 8 : 1L << level;
+    }
+
+    /**
+     * A csomópont befoglaló téglalapja a saját bal felső sarkához képest (memoizálva).
+     */
+    private void computeBounds(int node) {
+        if (minX[node] != Long.MIN_VALUE) return;
+        long loX = Long.MAX_VALUE;
+        long loY = Long.MAX_VALUE;
+        long hiX = Long.MIN_VALUE + 1;
+        long hiY = Long.MIN_VALUE + 1;
+
+        int level = levels[node];
+        if (node == 0) {
+            // üres
+        } else if (level == LEAF_8X8) {
+            long bits = leafBits[node];
+            for (int i = 0; i < 64; i++) {
+                if ((bits & (1L << i)) == 0) continue;
+                loX = Math.min(loX, i & 7);
+                hiX = Math.max(hiX, i & 7);
+                loY = Math.min(loY, i >> 3);
+                hiY = Math.max(hiY, i >> 3);
+            }
+        } else {
+            long half = size(level) / 2;
+            for (int i = 0; i < 4; i++) {
+                int child = children[node * 4 + i];
+                long offsetX = (i & 1) != 0 ? half : 0;
+                long offsetY = (i & 2) != 0 ? half : 0;
+                if (level == 1) {
+                    if (child != 0) {
+                        loX = Math.min(loX, offsetX);
+                        hiX = Math.max(hiX, offsetX);
+                        loY = Math.min(loY, offsetY);
+                        hiY = Math.max(hiY, offsetY);
+                    }
+                    continue;
+                }
+                if (child == 0) continue;
+                computeBounds(child);
+                if (minX[child] > maxX[child]) continue;
+                loX = Math.min(loX, offsetX + minX[child]);
+                hiX = Math.max(hiX, offsetX + maxX[child]);
+                loY = Math.min(loY, offsetY + minY[child]);
+                hiY = Math.max(hiY, offsetY + maxY[child]);
+            }
+        }
+        minX[node] = loX;
+        minY[node] = loY;
+        maxX[node] = hiX;
+        maxY[node] = hiY;
+    }
+
+    /**
+     * A csomópont nem üres celláinak beírása; (x, y) a csomópont bal felső sarka a rácsban.
+     */
+    private void paint(Grid grid, int node, long x, long y, boolean wireWorld) throws IOException {
+        if (node == 0 || minX[node] > maxX[node]) return;
+        int level = levels[node];
+        if (level == LEAF_8X8) {
+            long bits = leafBits[node];
+            while (bits != 0) {
+                int i = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                grid.setCell((int) (x + (i & 7)), (int) (y + (i >> 3)), CellState.ALIVE);
+            }
+            return;
+        }
+        if (level == 1) {
+            for (int i = 0; i < 4; i++) {
+                int state = children[node * 4 + i];
+                if (state != 0) {
+                    grid.setCell((int) (x + (i & 1)), (int) (y + (i >> 1)), stateOf(state, wireWorld));
+                }
+            }
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("A betöltés megszakadt");
+        }
+        long half = size(level) / 2;
+        for (int i = 0; i < 4; i++) {
+            paint(grid, children[node * 4 + i], x + ((i & 1) != 0 ? half : 0), y + ((i & 2) != 0 ? half : 0), wireWorld);
+        }
+    }
+
+    private static CellState stateOf(int state, boolean wireWorld) {
+        if (!wireWorld) return CellState.ALIVE;
+        switch (state) {
+            case 1: return CellState.HEAD;
+            case 2: return CellState.TAIL;
+            case 3: return CellState.CONDUCTOR;
+            default: return CellState.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package persistence;
+
+import model.CellState;
+import model.GameOfLifeRule;
+import model.MappedGrid;
+import model.SimulationRule;
+import model.WireWorldRule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A memóriába képezett rácsfájl (.golm) szabály-metaadata. A cellákat maga a MappedGrid
+ * tárolja a fájlban, ez az osztály csak a fejléc szabad részébe írja és onnan olvassa a szabályt:
+ *
+ *   byte  típus (0 = Életjáték, 1 = Wireworld)
+ *   short túlélési maszk, short születési maszk (n. bit: n szomszéd)
+ */
+final class MappedFormat {
+
+    static final String EXTENSION = ".golm";
+
+    private static final int TYPE_GAME_OF_LIFE = 0;
+    private static final int TYPE_WIREWORLD = 1;
+
+    private MappedFormat() {
+    }
+
+    static SimulationState read(Path path) throws IOException {
+        MappedGrid grid = MappedGrid.open(path);
+        ByteBuffer metadata = grid.metadata();
+        SimulationRule rule;
+        if (metadata.get(0) == TYPE_WIREWORLD) {
+            rule = new WireWorldRule();
+        } else {
+            GameOfLifeRule golRule = new GameOfLifeRule();
+            int survivalMask = metadata.getShort(1);
+            int birthMask = metadata.getShort(3);
+            if (survivalMask != 0 || birthMask != 0) {
+                golRule.setRules(BinaryFormat.fromMask(survivalMask), BinaryFormat.fromMask(birthMask));
+            }
+            rule = golRule;
+        }
+        return new SimulationState(grid, rule);
+    }
+
+    /**
+     * A szabály beírása a fejlécbe, majd a rács lemezre írása.
+     */
+    static void flush(MappedGrid grid, SimulationRule rule) {
+        ByteBuffer metadata = grid.metadata();
+        if (rule instanceof GameOfLifeRule) {
+            GameOfLifeRule golRule = (GameOfLifeRule) rule;
+            metadata.put(0, (byte) TYPE_GAME_OF_LIFE);
+            metadata.putShort(1, (short) BinaryFormat.toMask(golRule.getSurvivalRules()));
+            metadata.putShort(3, (short) BinaryFormat.toMask(golRule.getBirthRules()));
+        } else {
+            metadata.put(0, (byte) TYPE_WIREWORLD);
+        }
+        grid.flush();
+    }
+
+    static MappedGrid create(Path path, int width, int height, SimulationRule rule) throws IOException {
+        CellState defaultState = rule instanceof WireWorldRule ? CellState.EMPTY : CellState.DEAD;
+        MappedGrid grid = MappedGrid.create(path, width, height, defaultState);
+        flush(grid, rule);
+        return grid;
+    }
+}
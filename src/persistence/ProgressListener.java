@@ -0,0 +1,14 @@
+package persistence;
+
+/**
+ * Betöltés közbeni folyamatjelzés.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * @param rows Az eddig beolvasott sorok száma.
+     * @param totalRows Az összes sor száma, vagy -1, ha még nem ismert.
+     */
+    void rowLoaded(int rows, int totalRows);
+}
@@ -0,0 +1,454 @@
+package persistence;
+
+import model.CellState;
+import model.GameOfLifeRule;
+import model.Grid;
+import model.SimulationRule;
+import model.SparseGrid;
+import model.WireWorldRule;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A közösségi RLE mintaformátum folyamszerű olvasása és írása.
+ *
+ *   #N Név            (megjegyzések, '#'-tel kezdődő sorok)
+ *   x = 3, y = 3, rule = B3/S23
+ *   bo$2bo$3o!
+ *
+ * A futások (szám + állapotjel) közvetlenül a rács soraiba íródnak, cellánkénti objektum nélkül.
+ * A ritka (korlátlan) rács a Golly "#CXRLE Pos=x,y" sorával, a tartalma befoglaló téglalapjaként
+ * íródik ki; ilyen sorral rendelkező fájl ritka rácsba, az eredeti koordinátákra töltődik vissza.
+ * Életjátéknál b/. halott, o (vagy A) élő; Wireworldnél a Golly számozása szerint
+ * . üres, A fej, B farok, C vezető.
+ */
+final class RleFormat {
+
+    // Ennél több cellájú minta ritka (végtelen) rácsba kerül, a mintával egyező méretű ablakkal
+    static final long MAX_BOUNDED_CELLS = 1L << 26;
+
+    private static final int MAX_LINE_LENGTH = 70;
+    private static final String POSITION_PREFIX = "#CXRLE";
+
+    private RleFormat() {
+    }
+
+    static SimulationState read(Path path, ProgressListener listener) throws IOException {
+        try (AsciiReader in = new AsciiReader(Files.newInputStream(path))) {
+            long width = -1;
+            long height = -1;
+            String ruleText = null;
+            long[] position = null;
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith(POSITION_PREFIX)) {
+                    position = parsePosition(trimmed);
+                    continue;
+                }
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                for (String part : trimmed.split(",")) {
+                    int eq = part.indexOf('=');
+                    if (eq < 0) continue;
+                    String key = part.substring(0, eq).trim();
+                    String value = part.substring(eq + 1).trim();
+                    try {
+                        if (key.equals("x")) width = Long.parseLong(value);
+                        else if (key.equals("y")) height = Long.parseLong(value);
+                        else if (key.equals("rule")) ruleText = value;
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Hibás RLE fejléc: " + trimmed);
+                    }
+                }
+                break;
+            }
+            if (width < 0 || height < 0) {
+                throw new IOException("Hiányzó RLE fejléc (x = ..., y = ...)");
+            }
+
+            SimulationRule rule = parseRule(ruleText);
+            boolean wireWorld = rule instanceof WireWorldRule;
+            CellState defaultState = wireWorld ? CellState.EMPTY : CellState.DEAD;
+            Grid grid;
+            long originX = 0;
+            long originY = 0;
+            if (position != null) {
+                originX = position[0];
+                originY = position[1];
+                if (originX + width - 1 > Integer.MAX_VALUE || originY + height - 1 > Integer.MAX_VALUE) {
+                    throw new IOException("A minta kilóg az int koordináta-tartományból");
+                }
+                grid = createSparseGrid(width, height, defaultState);
+            } else {
+                grid = createGrid(width, height, defaultState);
+            }
+            decode(in, grid, wireWorld, height, originX, originY, listener);
+            return new SimulationState(grid, rule);
+        }
+    }
+
+    /**
+     * A "#CXRLE Pos=x,y" sor pozíciója, vagy null, ha a sorban nincs Pos.
+     */
+    private static long[] parsePosition(String line) throws IOException {
+        int start = line.indexOf("Pos=");
+        if (start < 0) return null;
+        String[] parts = line.substring(start + 4).split("[\\s]+")[0].split(",");
+        try {
+            long x = Long.parseLong(parts[0].trim());
+            long y = Long.parseLong(parts[1].trim());
+            if (x < Integer.MIN_VALUE || y < Integer.MIN_VALUE || x > Integer.MAX_VALUE || y > Integer.MAX_VALUE) {
+                throw new IOException("Érvénytelen pozíció: " + line);
+            }
+            return new long[] { x, y };
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Hibás pozíció: " + line);
+        }
+    }
+
+    /**
+     * Az RLE törzs dekódolása. Korlátos rácsnál soronként pufferel és setRow-val ír,
+     * ritka rácsnál csak a nem alapállapotú cellákat állítja be, az (originX, originY) eltolással.
+     */
+    private static void decode(AsciiReader in, Grid grid, boolean wireWorld, long height,
+                               long originX, long originY, ProgressListener listener) throws IOException {
+        boolean bounded = grid.isBounded();
+        int width = grid.getWidth();
+        byte defaultValue = (byte) grid.getDefaultState().ordinal();
+        byte[] row = bounded ? new byte[width] : null;
+        if (bounded) Arrays.fill(row, defaultValue);
+        boolean rowDirty = false;
+
+        long x = 0;
+        long y = 0;
+        long count = 0;
+        int totalRows = (int) Math.min(height, Integer.MAX_VALUE);
+
+        int c;
+        while ((c = in.read()) >= 0 && c != '!') {
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') continue;
+            if (c == '#') {
+                in.readLine();
+                continue;
+            }
+
+            long run = count == 0 ? 1 : count;
+            count = 0;
+            if (c == '$') {
+                if (bounded && rowDirty && y < grid.getHeight()) {
+                    grid.setRow((int) y, row, 0);
+                    Arrays.fill(row, defaultValue);
+                }
+                rowDirty = false;
+                for (long i = 0; i < run && y + i < totalRows; i++) {
+                    FileManager.rowLoaded(listener, (int) (y + i), totalRows);
+                }
+                y += run;
+                x = 0;
+                continue;
+            }
+
+            int state = c;
+            if (c >= 'p' && c <= 'y') {
+                // Kétbetűs állapot (25 felett): a mi állapotaink között nincs ilyen
+                in.read();
+                state = -1;
+            }
+            CellState cell = stateOf(state, wireWorld);
+            if (cell == null) {
+                throw new IOException("Ismeretlen RLE állapotjel: '" + (char) c + "'");
+            }
+            byte value = (byte) cell.ordinal();
+            if (value != defaultValue) {
+                if (bounded) {
+                    if (y < grid.getHeight() && x < width) {
+                        Arrays.fill(row, (int) x, (int) Math.min(x + run, width), value);
+                        rowDirty = true;
+                    }
+                } else {
+                    if (x + run > Integer.MAX_VALUE - originX || y >= height) {
+                        throw new IOException("A cellák kilógnak a minta fejlécében megadott méretből");
+                    }
+                    for (long i = 0; i < run; i++) {
+                        grid.setCell((int) (originX + x + i), (int) (originY + y), cell);
+                    }
+                }
+            }
+            x += run;
+        }
+        if (bounded && rowDirty && y < grid.getHeight()) {
+            grid.setRow((int) y, row, 0);
+        }
+    }
+
+    /**
+     * Egy RLE állapotjel cellaállapota, vagy null, ha a jel nem állapot.
+     */
+    private static CellState stateOf(int c, boolean wireWorld) {
+        if (wireWorld) {
+            switch (c) {
+                case 'b': case '.': return CellState.EMPTY;
+                case 'o': case 'A': return CellState.HEAD;
+                case 'B': return CellState.TAIL;
+                case 'C': return CellState.CONDUCTOR;
+                case -1: return CellState.EMPTY;
+                default: return c >= 'D' && c <= 'X' ? CellState.EMPTY : null;
+            }
+        }
+        if (c == 'b' || c == '.') return CellState.DEAD;
+        // A kétállapotú RLE-ben a b-n kívül minden betű élő cella
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'X') || c == -1) return CellState.ALIVE;
+        return null;
+    }
+
+    /**
+     * Rács a minta méretéhez: kisebb mintákhoz korlátos, nagyokhoz ritka.
+     */
+    static Grid createGrid(long width, long height, CellState defaultState) throws IOException {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) {
+            throw new IOException("A minta túl nagy: " + width + "x" + height);
+        }
+        if (width * height <= MAX_BOUNDED_CELLS) {
+            return new Grid((int) width, (int) height, defaultState);
+        }
+        return createSparseGrid(width, height, defaultState);
+    }
+
+    private static Grid createSparseGrid(long width, long height, CellState defaultState) {
+        return new SparseGrid((int) Math.max(1, Math.min(width, Integer.MAX_VALUE)),
+                (int) Math.max(1, Math.min(height, Integer.MAX_VALUE)), defaultState);
+    }
+
+    /**
+     * Szabályfejléc értelmezése: B3/S23, S23/B3, 23/3 (túlélés/születés) vagy WireWorld.
+     * A ':' utáni topológia-megadás (pl. :T100,100) figyelmen kívül marad.
+     */
+    static SimulationRule parseRule(String text) throws IOException {
+        GameOfLifeRule golRule = new GameOfLifeRule();
+        if (text == null || text.trim().isEmpty()) return golRule;
+
+        String rule = text.trim();
+        int colon = rule.indexOf(':');
+        if (colon >= 0) rule = rule.substring(0, colon);
+        if (rule.equalsIgnoreCase("WireWorld")) return new WireWorldRule();
+
+        rule = rule.toUpperCase();
+        String[] parts = rule.split("/", -1);
+        if (parts.length != 2) {
+            throw new IOException("Nem támogatott szabály: " + text);
+        }
+        Set<Integer> survival;
+        Set<Integer> birth;
+        if (parts[0].startsWith("B") || parts[0].startsWith("S")) {
+            String b = parts[0].startsWith("B") ? parts[0] : parts[1];
+            String s = parts[0].startsWith("B") ? parts[1] : parts[0];
+            if (!b.startsWith("B") || !s.startsWith("S")) {
+                throw new IOException("Nem támogatott szabály: " + text);
+            }
+            birth = digits(b.substring(1), text);
+            survival = digits(s.substring(1), text);
+        } else {
+            survival = digits(parts[0], text);
+            birth = digits(parts[1], text);
+        }
+        golRule.setRules(survival, birth);
+        return golRule;
+    }
+
+    private static Set<Integer> digits(String text, String rule) throws IOException {
+        Set<Integer> values = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '8') {
+                throw new IOException("Nem támogatott szabály: " + rule);
+            }
+            values.add(c - '0');
+        }
+        return values;
+    }
+
+    /**
+     * A szabály RLE fejléc alakja (B.../S... vagy WireWorld).
+     */
+    static String formatRule(SimulationRule rule) {
+        if (rule instanceof WireWorldRule) return "WireWorld";
+        if (!(rule instanceof GameOfLifeRule)) return "B3/S23";
+        GameOfLifeRule golRule = (GameOfLifeRule) rule;
+        StringBuilder text = new StringBuilder("B");
+        for (int n : new TreeSet<>(golRule.getBirthRules())) text.append(n);
+        text.append("/S");
+        for (int n : new TreeSet<>(golRule.getSurvivalRules())) text.append(n);
+        return text.toString();
+    }
+
+    /**
+     * A rács kiírása RLE-ben, soronként. A sorvégi alapállapotú futások és a
+     * záró üres sorok elmaradnak, az egymást követő üres sorok egy n$ jelbe vonódnak össze.
+     */
+    static void write(Path path, Grid grid, SimulationRule rule) throws IOException {
+        if (grid instanceof SparseGrid) {
+            writeSparse(path, (SparseGrid) grid, rule);
+            return;
+        }
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        boolean wireWorld = rule instanceof WireWorldRule;
+        byte defaultValue = (byte) grid.getDefaultState().ordinal();
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write("x = " + width + ", y = " + height + ", rule = " + formatRule(rule) + "\n");
+            RunWriter runs = new RunWriter(writer);
+            byte[] row = new byte[width];
+            long pendingRows = 0;
+            for (int y = 0; y < height; y++) {
+                grid.getRow(y, row, 0);
+                int end = width;
+                while (end > 0 && row[end - 1] == defaultValue) end--;
+                if (end > 0) {
+                    if (pendingRows > 0) runs.write(pendingRows, '$');
+                    pendingRows = 0;
+                    int x = 0;
+                    while (x < end) {
+                        byte value = row[x];
+                        int start = x;
+                        while (x < end && row[x] == value) x++;
+                        runs.write(x - start, symbolOf(value, wireWorld));
+                    }
+                }
+                pendingRows++;
+            }
+            runs.write(1, '!');
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * A ritka rács teljes tartalma (nem csak a megjelenített ablak) a befoglaló téglalapjával és
+     * a Pos sorral. A sorokat a lefoglalt darabokon végigmenve állítja össze, így a darabok
+     * közötti üres szakaszok (akár a teljes int tartományon át) csak egy-egy futást jelentenek.
+     */
+    private static void writeSparse(Path path, SparseGrid grid, SimulationRule rule) throws IOException {
+        boolean wireWorld = rule instanceof WireWorldRule;
+        byte defaultValue = (byte) grid.getDefaultState().ordinal();
+        int[] bounds = grid.getContentBounds();
+        long minX = bounds != null ? bounds[0] : 0;
+        long minY = bounds != null ? bounds[1] : 0;
+        long width = bounds != null ? bounds[2] - minX + 1 : 0;
+        long height = bounds != null ? bounds[3] - minY + 1 : 0;
+        int[] chunks = grid.getChunkCoordinates();
+        int chunkCount = chunks.length / 2;
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write(POSITION_PREFIX + " Pos=" + minX + "," + minY + "\n");
+            writer.write("x = " + width + ", y = " + height + ", rule = " + formatRule(rule) + "\n");
+            RunWriter runs = new RunWriter(writer);
+            byte[] segment = new byte[SparseGrid.CHUNK_SIZE];
+            long lastRow = minY;   // az utolsó kiírt (nem üres) sor
+            int first = 0;
+            while (first < chunkCount) {
+                // Az azonos darabsorba eső darabok: [first, end)
+                int chunkY = chunks[2 * first + 1];
+                int end = first;
+                while (end < chunkCount && chunks[2 * end + 1] == chunkY) end++;
+
+                for (int ly = 0; ly < SparseGrid.CHUNK_SIZE; ly++) {
+                    int y = (chunkY << SparseGrid.CHUNK_SHIFT) + ly;
+                    long next = minX;            // a következő kiírandó cella oszlopa
+                    byte runValue = defaultValue;
+                    long runLength = 0;
+                    boolean rowStarted = false;
+                    for (int i = first; i < end; i++) {
+                        int baseX = chunks[2 * i] << SparseGrid.CHUNK_SHIFT;
+                        grid.getRow(y, baseX, segment.length, segment, 0);
+                        for (int lx = 0; lx < segment.length; lx++) {
+                            byte value = segment[lx];
+                            if (value == defaultValue) continue;
+                            if (!rowStarted) {
+                                if (y > lastRow) runs.write(y - lastRow, '$');
+                                lastRow = y;
+                                rowStarted = true;
+                            }
+                            long x = (long) baseX + lx;
+                            // A kihagyott alapállapotú cellák, majd ez a cella; az azonos szomszédok egy futásba
+                            if (x > next) {
+                                if (runLength > 0) runs.write(runLength, symbolOf(runValue, wireWorld));
+                                runValue = defaultValue;
+                                runLength = x - next;
+                            }
+                            if (value != runValue) {
+                                if (runLength > 0) runs.write(runLength, symbolOf(runValue, wireWorld));
+                                runValue = value;
+                                runLength = 0;
+                            }
+                            runLength++;
+                            next = x + 1;
+                        }
+                    }
+                    if (runLength > 0) runs.write(runLength, symbolOf(runValue, wireWorld));
+                }
+                first = end;
+            }
+            runs.write(1, '!');
+            writer.write('\n');
+        }
+    }
+
+    private static char symbolOf(byte value, boolean wireWorld) {
+        CellState state = Grid.stateOf(value);
+        if (wireWorld) {
+            switch (state) {
+                case HEAD: return 'A';
+                case TAIL: return 'B';
+                case CONDUCTOR: return 'C';
+                default: return '.';
+            }
+        }
+        return state == CellState.ALIVE ? 'o' : 'b';
+    }
+
+    /**
+     * Futások kiírása legfeljebb 70 karakteres sorokba.
+     */
+    private static final class RunWriter {
+        private final Writer writer;
+        private final char[] token = new char[21];
+        private int lineLength;
+
+        RunWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void write(long count, char symbol) throws IOException {
+            // A token hátulról töltődik: jel, előtte a szám (1 esetén elhagyva)
+            int start = token.length - 1;
+            token[start] = symbol;
+            if (count > 1) {
+                for (long n = count; n > 0; n /= 10) {
+                    token[--start] = (char) ('0' + n % 10);
+                }
+            }
+            int length = token.length - start;
+            if (lineLength + length > MAX_LINE_LENGTH) {
+                writer.write('\n');
+                lineLength = 0;
+            }
+            writer.write(token, start, length);
+            lineLength += length;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package persistence;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR esemény a FileManager.saveSimulation hívásairól. Alapból ki van kapcsolva (lásd gameoflife.jfc).
+ */
+@Name("gameoflife.Save")
+@Label("Mentés")
+@Category({ "Game of Life", "Fájlkezelés" })
+@Enabled(false)
+final class SaveEvent extends jdk.jfr.Event {
+
+    @Label("Fájl")
+    String path;
+
+    @Label("Formátum")
+    String format;
+
+    @Label("Méret")
+    @DataAmount
+    long bytes;
+
+    @Label("Sikeres")
+    boolean succeeded;
+}
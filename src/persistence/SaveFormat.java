@@ -0,0 +1,30 @@
+package persistence;
+
+import java.io.File;
+
+/**
+ * A mentés formátuma. Betöltéskor a formátum automatikusan felismerődik.
+ */
+public enum SaveFormat {
+    // Olvasható, tagolt JSON (az eredeti formátum)
+    JSON,
+    // Tömör bináris formátum (.golb)
+    BINARY,
+    // Bináris formátum Deflate-tel tömörített cellaadattal
+    BINARY_COMPRESSED,
+    // A közösségi RLE mintaformátum (.rle)
+    RLE;
+
+    public static final String BINARY_EXTENSION = ".golb";
+    public static final String RLE_EXTENSION = ".rle";
+
+    /**
+     * A fájlnév kiterjesztése alapján választ: .golb esetén tömörített bináris, .rle esetén RLE, egyébként JSON.
+     */
+    public static SaveFormat forFile(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(BINARY_EXTENSION)) return BINARY_COMPRESSED;
+        if (name.endsWith(RLE_EXTENSION)) return RLE;
+        return JSON;
+    }
+}
@@ -0,0 +1,78 @@
+package view;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Újrarajzolandó téglalapok (cellakoordinátákban) gyűjtése és összevonása.
+ * Az egy sorban egymás mellett lévő, azonos magasságú téglalapok egybeolvadnak, utána
+ * az egymás alatt lévő, azonos szélességűek. Túl sok darab esetén a befoglaló téglalap marad.
+ * Bármely szálról bővíthető; a take a rajzoló (EDT) szálon üríti.
+ */
+final class DirtyRegions {
+
+    // Ennél több téglalapnál olcsóbb egyben újrarajzolni a befoglalójukat
+    private static final int MAX_RECTANGLES = 32;
+
+    private static final Comparator<Rectangle> ROW_ORDER =
+            Comparator.<Rectangle>comparingInt(r -> r.y).thenComparingInt(r -> r.x);
+    private static final Comparator<Rectangle> COLUMN_ORDER =
+            Comparator.<Rectangle>comparingInt(r -> r.x).thenComparingInt(r -> r.y);
+
+    private List<Rectangle> pending = new ArrayList<>();
+
+    /**
+     * Hozzáad egy téglalapot. @return Igaz, ha ez az első a legutóbbi take óta (ekkor kell ütemezni).
+     */
+    synchronized boolean add(int x, int y, int width, int height) {
+        pending.add(new Rectangle(x, y, width, height));
+        return pending.size() == 1;
+    }
+
+    /**
+     * Kiveszi és összevonja az összegyűlt téglalapokat.
+     */
+    List<Rectangle> take() {
+        List<Rectangle> rectangles;
+        synchronized (this) {
+            rectangles = pending;
+            pending = new ArrayList<>();
+        }
+        if (rectangles.size() <= 1) return rectangles;
+
+        rectangles = merge(rectangles, ROW_ORDER, true);
+        rectangles = merge(rectangles, COLUMN_ORDER, false);
+        if (rectangles.size() > MAX_RECTANGLES) {
+            Rectangle bounds = new Rectangle(rectangles.get(0));
+            for (Rectangle r : rectangles) {
+                bounds.add(r);
+            }
+            rectangles = new ArrayList<>();
+            rectangles.add(bounds);
+        }
+        return rectangles;
+    }
+
+    /**
+     * Rendezés után a közvetlen szomszédokat vonja össze: vízszintesen az azonos sávban
+     * érintkezőket (horizontal), függőlegesen az azonos oszlopsávban érintkezőket.
+     */
+    private static List<Rectangle> merge(List<Rectangle> rectangles, Comparator<Rectangle> order, boolean horizontal) {
+        rectangles.sort(order);
+        List<Rectangle> merged = new ArrayList<>();
+        Rectangle current = null;
+        for (Rectangle r : rectangles) {
+            if (current != null && (horizontal
+                    ? r.y == current.y && r.height == current.height && r.x <= current.x + current.width
+                    : r.x == current.x && r.width == current.width && r.y <= current.y + current.height)) {
+                current.add(r);
+            } else {
+                current = new Rectangle(r);
+                merged.add(current);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,153 @@
+package view;
+
+import model.CellState;
+import model.Grid;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A rács raszteres kirajzolása: a látható terület pixelei egy BufferedImage int[] tömbjébe
+ * kerülnek, amit egyetlen drawImage tesz ki a panelre.
+ *
+ * Rajzolásonként egyszer kiszámoljuk, melyik pixeloszlop melyik cellaoszlopra esik (vagy rácsvonal-e),
+ * így egy cellasor pixelsora pixelenként egy táblakeresés. A cellasor többi pixelsora ennek
+ * másolata, a vízszintes rácsvonal egyszínű sor. Csak a vágóterület és a rács metszete rajzolódik,
+ * ezért a költség az ablak méretével arányos, nem a rácséval. A kép a vágóterület méretére nő,
+ * és újrahasznosul. Korlátlan (ritka) rácsnál a teljes int koordináta-tartomány kirajzolható.
+ */
+final class GridRaster {
+
+    private static final CellState[] STATES = CellState.values();
+    private static final int GRID_LINE_RGB = Color.LIGHT_GRAY.getRGB();
+    // Ennél kisebb cellákon a rácsvonalak eltakarnák a cellákat
+    private static final int MIN_GRID_LINE_CELL_SIZE = 4;
+
+    private final int[] palette = new int[STATES.length];
+    private BufferedImage image;
+    private int[] pixels;
+    private byte[] row = new byte[0];
+    private int[] columnCells = new int[0];
+    private boolean[] columnLines = new boolean[0];
+    // A legutóbb kirajzolt terület a panelen
+    private final Rectangle last = new Rectangle();
+
+    GridRaster() {
+        for (CellState state : STATES) {
+            palette[state.ordinal()] = state.getDefaultColor().getRGB();
+        }
+    }
+
+    /**
+     * A rácsnak a clip-be eső része a nézőablak szerint.
+     */
+    void paint(Graphics2D g, Grid grid, Rectangle clip, Viewport viewport, boolean showGridLines) {
+        // A kirajzolható cellák tartománya: [minCell, endX) x [minCell, endY)
+        boolean bounded = grid.isBounded();
+        long minCell = bounded ? 0 : Integer.MIN_VALUE;
+        long endX = bounded ? grid.getWidth() : Integer.MAX_VALUE + 1L;
+        long endY = bounded ? grid.getHeight() : Integer.MAX_VALUE + 1L;
+        int cellSize = viewport.getCellSize();
+        boolean lines = showGridLines && viewport.getCellsPerPixel() == 1 && cellSize >= MIN_GRID_LINE_CELL_SIZE;
+        // A cellánkénti drawRect a rács jobb és alsó szélén is húzott egy vonalat
+        int line = lines ? 1 : 0;
+
+        long boardLeft = viewport.screenX(minCell);
+        long boardTop = viewport.screenY(minCell);
+        int left = (int) Math.max(clip.x, boardLeft);
+        int top = (int) Math.max(clip.y, boardTop);
+        int right = (int) Math.min(clip.x + (long) clip.width, boardLeft + viewport.worldSize(endX - minCell) + line);
+        int bottom = (int) Math.min(clip.y + (long) clip.height, boardTop + viewport.worldSize(endY - minCell) + line);
+        if (right <= left || bottom <= top) return;
+
+        int width = right - left;
+        int height = bottom - top;
+        ensureCapacity(width, height);
+        int stride = image.getWidth();
+
+        // Pixeloszlop -> cellaoszlop (vagy rácsvonal)
+        long fromX = Long.MAX_VALUE;
+        long toX = Long.MIN_VALUE;
+        for (int px = 0; px < width; px++) {
+            long world = viewport.getOriginX() + left + px;
+            long cellX = viewport.worldToCell(world);
+            boolean isLine = cellX < minCell || cellX >= endX || (lines && Math.floorMod(world, cellSize) == 0);
+            columnLines[px] = isLine;
+            if (!isLine) {
+                columnCells[px] = (int) cellX;
+                fromX = Math.min(fromX, cellX);
+                toX = Math.max(toX, cellX + 1);
+            }
+        }
+        // Erős kicsinyítésnél a teljes sortartomány helyett csak a mintavett cellák olvasódnak
+        boolean sampled = toX - fromX > 2L * width;
+        if (!sampled && row.length < toX - fromX) {
+            row = new byte[(int) (toX - fromX)];
+        }
+
+        int cachedRow = -1;   // a kép melyik sorában van a legutóbb kiszámolt cellasor
+        long cachedCellY = Long.MIN_VALUE;
+        for (int py = top; py < bottom; py++) {
+            int base = (py - top) * stride;
+            long world = viewport.getOriginY() + py;
+            long cellY = viewport.worldToCell(world);
+            if (cellY < minCell || cellY >= endY || (lines && Math.floorMod(world, cellSize) == 0)) {
+                Arrays.fill(pixels, base, base + width, GRID_LINE_RGB);
+            } else if (cellY == cachedCellY) {
+                System.arraycopy(pixels, cachedRow, pixels, base, width);
+            } else {
+                if (sampled) {
+                    renderSampledRow(grid, (int) cellY, width, base);
+                } else {
+                    renderRow(grid, (int) cellY, (int) fromX, (int) (toX - fromX), width, base);
+                }
+                cachedRow = base;
+                cachedCellY = cellY;
+            }
+        }
+        g.drawImage(image, left, top, right, bottom, 0, 0, width, height, null);
+        last.setBounds(left, top, width, height);
+    }
+
+    /**
+     * A legutóbb kiszámolt kép újrarajzolása a rács olvasása nélkül (amíg a rács zárolt).
+     */
+    void paintLast(Graphics2D g) {
+        if (image == null || last.isEmpty()) return;
+        g.drawImage(image, last.x, last.y, last.x + last.width, last.y + last.height,
+                0, 0, last.width, last.height, null);
+    }
+
+    private void renderRow(Grid grid, int cellY, int fromX, int count, int width, int base) {
+        if (count > 0) {
+            grid.getRow(cellY, fromX, count, row, 0);
+        }
+        for (int px = 0; px < width; px++) {
+            // Az int kivonás túlcsordulhat, de a különbség (count-nál kisebb) így is helyes
+            pixels[base + px] = columnLines[px] ? GRID_LINE_RGB : palette[row[columnCells[px] - fromX]];
+        }
+    }
+
+    private void renderSampledRow(Grid grid, int cellY, int width, int base) {
+        for (int px = 0; px < width; px++) {
+            pixels[base + px] = columnLines[px] ? GRID_LINE_RGB : palette[grid.getCell(columnCells[px], cellY).ordinal()];
+        }
+    }
+
+    private void ensureCapacity(int width, int height) {
+        if (image == null || image.getWidth() < width || image.getHeight() < height) {
+            int newWidth = Math.max(width, image != null ? image.getWidth() : 0);
+            int newHeight = Math.max(height, image != null ? image.getHeight() : 0);
+            image = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        if (columnCells.length < width) {
+            columnCells = new int[width];
+            columnLines = new boolean[width];
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package view;
 
 import controller.GameController;
+import controller.SimulationMetrics;
 import model.*;
 import persistence.FileManager;
+import persistence.SaveFormat;
 import persistence.SimulationState;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Az alkalmazás főablaka (JFrame).
@@ -17,8 +21,17 @@ public class MainFrame extends JFrame {
 
     private static final long serialVersionUID = 1L;
 	private GameController controller;
+    private JLabel speedLabel;
     private SimulationPanel simulationPanel;
     private ToolsPanel toolPanel;
+    private JCheckBoxMenuItem bitEngineItem;
+    private JCheckBoxMenuItem wireEngineItem;
+    private int threadCount = 1;
+    private JumpWorker jumpWorker;   // a folyamatban lévő ugrás (vagy null)
+    // Egy példány a program teljes futására, hogy a JMX-en regisztrált MBean az új szimulációnál is érvényes maradjon
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    private JCheckBoxMenuItem hudItem;
+    private JCheckBoxMenuItem cycleItem;
 
     public MainFrame() {
         setTitle("Sejtautomaták - Game of Life & Wireworld");
@@ -31,9 +44,12 @@ public class MainFrame extends JFrame {
         SimulationRule initialRule = new GameOfLifeRule();
         
         controller = new GameController(initialGrid, initialRule);
+        controller.setMetrics(metrics);
+        metrics.register();
         simulationPanel = new SimulationPanel(controller);
         controller.setView(simulationPanel);
         buildMenuBar();
+        applyCycleSettings();
         buildControlPanel();
         toolPanel = new ToolsPanel(controller);
         add(toolPanel, BorderLayout.NORTH);
@@ -48,7 +64,7 @@ public class MainFrame extends JFrame {
     }
 
     /**
-     * A felső menüsor felépítése (Fájl, Szerkesztés).
+     * A felső menüsor felépítése (Fájl, Szerkesztés, Nézet).
      */
     private void buildMenuBar() {
         JMenuBar menuBar = new JMenuBar();
@@ -74,8 +90,60 @@ public class MainFrame extends JFrame {
         rulesItem.addActionListener(e -> showRuleCustomizationDialog());
         editMenu.add(rulesItem);
 
+        bitEngineItem = new JCheckBoxMenuItem("Bitcsomagolt motor (Életjáték)");
+        bitEngineItem.addActionListener(e -> applyEngineSettings());
+        editMenu.add(bitEngineItem);
+
+        wireEngineItem = new JCheckBoxMenuItem("Eseményvezérelt motor (Wireworld)");
+        wireEngineItem.addActionListener(e -> applyEngineSettings());
+        editMenu.add(wireEngineItem);
+
+        // Csak akkor kapcsolható, ha a JVM a jdk.incubator.vector modullal indult, és a kernel (src-vector) le van fordítva
+        JCheckBoxMenuItem vectorItem = new JCheckBoxMenuItem("SIMD kernel (Vector API)", VectorSupport.isEnabled());
+        vectorItem.setEnabled(VectorSupport.isAvailable());
+        vectorItem.addActionListener(e -> VectorSupport.setEnabled(vectorItem.isSelected()));
+        editMenu.add(vectorItem);
+
+        JMenuItem jumpItem = new JMenuItem("Ugrás N generációval...");
+        jumpItem.addActionListener(e -> showJumpDialog());
+        editMenu.add(jumpItem);
+
+        JMenuItem threadsItem = new JMenuItem("Szálak száma...");
+        threadsItem.addActionListener(e -> showThreadCountDialog());
+        editMenu.add(threadsItem);
+
+        // Bekapcsolva csendéletnél vagy oszcillátornál a futás megáll, és üzenet jelzi a periódust.
+        // Alapból ki van kapcsolva: üres táblán indítva azonnal megállna, és a hash-elés minden lépést lassít
+        cycleItem = new JCheckBoxMenuItem("Ismétlődés figyelése", false);
+        cycleItem.addActionListener(e -> controller.setCycleDetection(cycleItem.isSelected()));
+        editMenu.add(cycleItem);
+
+        // Nézet menü: nagyítás és a teljes pálya (görgővel és jobb gombos húzással is)
+        JMenu viewMenu = new JMenu("Nézet");
+        JMenuItem zoomInItem = new JMenuItem("Nagyítás");
+        zoomInItem.setAccelerator(KeyStroke.getKeyStroke("control EQUALS"));
+        zoomInItem.addActionListener(e -> simulationPanel.zoomIn());
+        viewMenu.add(zoomInItem);
+
+        JMenuItem zoomOutItem = new JMenuItem("Kicsinyítés");
+        zoomOutItem.setAccelerator(KeyStroke.getKeyStroke("control MINUS"));
+        zoomOutItem.addActionListener(e -> simulationPanel.zoomOut());
+        viewMenu.add(zoomOutItem);
+
+        JMenuItem fitItem = new JMenuItem("Teljes pálya");
+        fitItem.setAccelerator(KeyStroke.getKeyStroke("control 0"));
+        fitItem.addActionListener(e -> simulationPanel.fitToWindow());
+        viewMenu.add(fitItem);
+
+        viewMenu.addSeparator();
+        hudItem = new JCheckBoxMenuItem("Teljesítménykijelző");
+        hudItem.setAccelerator(KeyStroke.getKeyStroke("F3"));
+        hudItem.addActionListener(e -> simulationPanel.setHudVisible(hudItem.isSelected()));
+        viewMenu.add(hudItem);
+
         menuBar.add(fileMenu);
         menuBar.add(editMenu);
+        menuBar.add(viewMenu);
         setJMenuBar(menuBar);
     }
 
@@ -93,10 +161,13 @@ public class MainFrame extends JFrame {
         stopButton.addActionListener(e -> controller.stopSimulation());
         
         JLabel infoLabel = new JLabel(" | Sebesség: Fel/Le | Rajz: Katt/Húzás");
+        speedLabel = new JLabel();
+        updateSpeedLabel();
 
         controlPanel.add(startButton);
         controlPanel.add(stopButton);
         controlPanel.add(infoLabel);
+        controlPanel.add(speedLabel);
 
         add(controlPanel, BorderLayout.SOUTH);
     }
@@ -110,9 +181,11 @@ public class MainFrame extends JFrame {
         JTextField heightField = new JTextField("30");
         String[] types = {"Életjáték (Game of Life)", "Wireworld"};
         JComboBox<String> typeCombo = new JComboBox<>(types);
+        JCheckBox unboundedBox = new JCheckBox("Végtelen (ritka) pálya");
+        JCheckBox mappedBox = new JCheckBox("Memóriába képezett fájl (heapnél nagyobb pálya)");
 
         Object[] message = {
-            "Típus:", typeCombo, "Szélesség:", widthField, "Magasság:", heightField
+            "Típus:", typeCombo, "Szélesség:", widthField, "Magasság:", heightField, unboundedBox, mappedBox
         };
 
         int option = JOptionPane.showConfirmDialog(this, message, "Új szimuláció", JOptionPane.OK_CANCEL_OPTION);
@@ -134,7 +207,14 @@ public class MainFrame extends JFrame {
                     defaultState = CellState.DEAD;
                     newRule = new GameOfLifeRule();
                 }
-                newGrid = new Grid(w, h, defaultState);
+                if (unboundedBox.isSelected()) {
+                    newGrid = new SparseGrid(w, h, defaultState);
+                } else if (mappedBox.isSelected()) {
+                    newGrid = createMappedGrid(w, h, newRule);
+                    if (newGrid == null) return;
+                } else {
+                    newGrid = new Grid(w, h, defaultState);
+                }
 
                 resetController(newGrid, newRule);
 
@@ -144,24 +224,98 @@ public class MainFrame extends JFrame {
         }
     }
 
+    /**
+     * Bekéri a rácsfájl helyét, és létrehozza benne a memóriába képezett rácsot.
+     * @return Az új rács, vagy null, ha a felhasználó megszakította vagy hiba történt.
+     */
+    private Grid createMappedGrid(int w, int h, SimulationRule rule) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Rácsfájl helye");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Leképezett rács (*.golm)", "golm"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return null;
+
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".golm")) {
+            file = new File(file.getAbsolutePath() + ".golm");
+        }
+        try {
+            return new FileManager().createMappedSimulation(file, w, h, rule).grid;
+        } catch (IOException | RuntimeException ex) {
+            JOptionPane.showMessageDialog(this, "Hiba: " + ex.getMessage(), "Hiba", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+
+    private static boolean isBackingFile(Grid grid, File file) {
+        try {
+            return FileManager.isBackedBy(grid, file);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
     /**
      * Megnyit egy fájlválasztó ablakot a szimuláció jelenlegi állapotának
-     * JSON formátumban történő mentéséhez a FileManager segítségével.
+     * JSON, tömör bináris (.golb) vagy RLE formátumban történő mentéséhez a FileManager segítségével.
+     * Fájlhoz kötött, memóriába képezett rácsnál a saját fájlja az alapértelmezett cél (ekkor a mentés
+     * csak flush), de a rács bármelyik másik formátumba is exportálható.
      */
     private void saveSimulation() {
+        Grid grid = controller.getGrid();
+        File backingFile = grid instanceof MappedGrid && !((MappedGrid) grid).isTemporary()
+                ? ((MappedGrid) grid).getFile().toFile() : null;
+
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Szimuláció mentése");
+        FileNameExtensionFilter jsonFilter = new FileNameExtensionFilter("JSON (*.json)", "json");
+        FileNameExtensionFilter binaryFilter = new FileNameExtensionFilter("Tömör bináris (*.golb)", "golb");
+        FileNameExtensionFilter rleFilter = new FileNameExtensionFilter("RLE minta (*.rle)", "rle");
+        fileChooser.addChoosableFileFilter(jsonFilter);
+        fileChooser.addChoosableFileFilter(binaryFilter);
+        fileChooser.addChoosableFileFilter(rleFilter);
+        // A korlátlan rács teljes tartalmát csak az RLE írja ki
+        fileChooser.setFileFilter(grid.isBounded() ? jsonFilter : rleFilter);
+        FileNameExtensionFilter mappedFilter = new FileNameExtensionFilter("Leképezett rács (*.golm)", "golm");
+        if (backingFile != null) {
+            fileChooser.addChoosableFileFilter(mappedFilter);
+            fileChooser.setFileFilter(mappedFilter);
+            fileChooser.setSelectedFile(backingFile);
+        }
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            if (!file.getName().toLowerCase().endsWith(".json")) {
-                file = new File(file.getAbsolutePath() + ".json");
+            String name = file.getName().toLowerCase();
+            // A rács saját fájlja: a FileManager csak kiírja a módosított lapokat
+            boolean flushOnly = isBackingFile(grid, file);
+            if (!flushOnly) {
+                if (fileChooser.getFileFilter() == mappedFilter) {
+                    JOptionPane.showMessageDialog(this, "Leképezett rácsként csak a saját fájlja menthető; "
+                            + "másik fájlba JSON, .golb vagy RLE formátumban exportálható.", "Hiba", JOptionPane.ERROR_MESSAGE);
+                    return;
+                } else if (fileChooser.getFileFilter() == binaryFilter) {
+                    if (!name.endsWith(SaveFormat.BINARY_EXTENSION)) {
+                        file = new File(file.getAbsolutePath() + SaveFormat.BINARY_EXTENSION);
+                    }
+                } else if (fileChooser.getFileFilter() == rleFilter) {
+                    if (!name.endsWith(SaveFormat.RLE_EXTENSION)) {
+                        file = new File(file.getAbsolutePath() + SaveFormat.RLE_EXTENSION);
+                    }
+                } else if (!name.endsWith(".json") && !name.endsWith(SaveFormat.BINARY_EXTENSION)
+                        && !name.endsWith(SaveFormat.RLE_EXTENSION)) {
+                    file = new File(file.getAbsolutePath() + ".json");
+                }
             }
             
             try {
                 FileManager fm = new FileManager();
-                fm.saveSimulation(file, controller.getGrid(), controller.getRule()); 
-                JOptionPane.showMessageDialog(this, "Sikeres mentés!");
+                // Futó szimulációnál egy teljes generáció kerüljön a fájlba
+                controller.lockGrid();
+                try {
+                    fm.saveSimulation(file, grid, controller.getRule(), SaveFormat.forFile(file));
+                } finally {
+                    controller.unlockGrid();
+                }
+                JOptionPane.showMessageDialog(this, flushOnly ? "Sikeres mentés: " + file.getName() : "Sikeres mentés!");
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Hiba: " + ex.getMessage());
                 ex.printStackTrace();
@@ -170,8 +324,8 @@ public class MainFrame extends JFrame {
     }
 
     /**
-     * Megnyit egy fájlválasztó ablakot egy korábban mentett szimuláció betöltéséhez,
-     * majd frissíti a játékteret a betöltött adatokkal.
+     * Megnyit egy fájlválasztó ablakot egy korábban mentett szimuláció vagy egy RLE/Macrocell
+     * minta betöltéséhez, majd frissíti a játékteret a betöltött adatokkal.
      */
     private void loadSimulation() {
         JFileChooser fileChooser = new JFileChooser();
@@ -179,14 +333,64 @@ public class MainFrame extends JFrame {
         
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
+            ProgressMonitor monitor = new ProgressMonitor(this, "Betöltés: " + file.getName(), null, 0, 100);
+            new LoadWorker(file, monitor).execute();
+        }
+    }
+
+    /**
+     * Háttérszálon betölti a mentést, hogy nagy fájloknál se álljon meg a felület.
+     * A haladást a ProgressMonitor mutatja; megszakításkor a betöltő szál leáll, és a régi szimuláció marad.
+     * A Mégse gombot időzítő figyeli, így azokat a formátumokat is meg lehet szakítani, amelyek
+     * nem jeleznek haladást (pl. ismeretlen sorszámnál).
+     */
+    private class LoadWorker extends SwingWorker<SimulationState, Void> {
+        private final File file;
+        private final ProgressMonitor monitor;
+        private final Timer cancelPoll;
+
+        LoadWorker(File file, ProgressMonitor monitor) {
+            this.file = file;
+            this.monitor = monitor;
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    monitor.setProgress((Integer) e.getNewValue());
+                }
+            });
+            cancelPoll = new Timer(100, e -> {
+                if (monitor.isCanceled()) {
+                    cancel(true);
+                } else {
+                    // Haladás nélkül is felugrik az ablak, ha a betöltés sokáig tart
+                    monitor.setProgress(getProgress());
+                }
+            });
+            cancelPoll.start();
+        }
+
+        @Override
+        protected SimulationState doInBackground() throws Exception {
+            FileManager fm = new FileManager();
+            return fm.loadSimulation(file, (rows, totalRows) -> {
+                if (totalRows > 0) {
+                    setProgress(Math.min(100, (int) (100L * rows / totalRows)));
+                }
+            });
+        }
+
+        @Override
+        protected void done() {
+            cancelPoll.stop();
+            monitor.close();
+            if (isCancelled()) return;
             try {
-                FileManager fm = new FileManager();
-                SimulationState state = fm.loadSimulation(file); 
+                SimulationState state = get();
                 resetController(state.grid, state.rule);
-                JOptionPane.showMessageDialog(this, "Sikeres betöltés!");
+                JOptionPane.showMessageDialog(MainFrame.this, "Sikeres betöltés!");
             } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Hiba: " + ex.getMessage());
-                ex.printStackTrace();
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                JOptionPane.showMessageDialog(MainFrame.this, "Hiba: " + cause.getMessage());
+                cause.printStackTrace();
             }
         }
     }
@@ -197,13 +401,28 @@ public class MainFrame extends JFrame {
      * @param newRule Az új szabályrendszer.
      */
     private void resetController(Grid newGrid, SimulationRule newRule) {
+        if (jumpWorker != null) {
+            // A megszakított ugrás a lépése végén elengedi a rácsot; megvárjuk, mielőtt lezárnánk
+            jumpWorker.cancel(true);
+            controller.lockGrid();
+            controller.unlockGrid();
+        }
         controller.stopSimulation();
+        controller.setParallelism(1); // a régi vezérlő szálainak leállítása
+        closeMappedGrid(controller.getGrid());
+        simulationPanel.setHudVisible(false); // a régi panel időzítőjének leállítása
         remove(simulationPanel);
         remove(toolPanel);
         
+        int speed = controller.getTargetSpeed();
         controller = new GameController(newGrid, newRule);
+        controller.setTargetSpeed(speed);
+        controller.setMetrics(metrics);
+        applyEngineSettings();
+        applyCycleSettings();
         
         simulationPanel = new SimulationPanel(controller);
+        simulationPanel.setHudVisible(hudItem.isSelected());
         toolPanel = new ToolsPanel(controller);
         
         controller.setView(simulationPanel);
@@ -216,6 +435,140 @@ public class MainFrame extends JFrame {
         repaint();
     }
 
+    /**
+     * A lecserélt leképezett rács fájljának elengedése (fájlhoz kötöttnél előtte flush).
+     */
+    private void closeMappedGrid(Grid oldGrid) {
+        if (!(oldGrid instanceof MappedGrid)) return;
+        try {
+            ((MappedGrid) oldGrid).close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * A menüben kiválasztott, az aktuális szabályhoz illő motort állítja be a vezérlőn.
+     */
+    private void applyEngineSettings() {
+        SimulationRule rule = controller.getRule();
+        if (rule instanceof GameOfLifeRule && bitEngineItem.isSelected()) {
+            controller.setEngine(new BitLifeEngine());
+        } else if (rule instanceof WireWorldRule && wireEngineItem.isSelected()) {
+            controller.setEngine(new WireWorldEngine());
+        } else {
+            controller.setEngine(null);
+        }
+        controller.setParallelism(threadCount);
+    }
+
+    /**
+     * Az ismétlődésfigyelés beállítása az aktuális vezérlőn.
+     */
+    private void applyCycleSettings() {
+        controller.setCycleListener(this::showCycleMessage);
+        controller.setCycleDetection(cycleItem.isSelected());
+    }
+
+    /**
+     * Üzenet a felismert ismétlődésről (a léptető szálról hívva, ezért az EDT-n jelenik meg).
+     */
+    private void showCycleMessage(long startGeneration, int period) {
+        String message = period == 1
+                ? "Csendélet: a(z) " + startGeneration + ". generációtól nem változik."
+                : "Ismétlődés: " + period + " generációs periódus a(z) " + startGeneration + ". generációtól.";
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this, message, "Ismétlődés", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    /**
+     * Bekéri, hány generációt ugorjon előre a szimuláció.
+     * Életjátéknál a HashLife motor számol, így nagy értékek is gyorsan lefutnak; az ugrás
+     * háttérszálon fut, a haladást a ProgressMonitor mutatja, és megszakítható.
+     */
+    private void showJumpDialog() {
+        if (jumpWorker != null) return;
+        String input = JOptionPane.showInputDialog(this, "Generációk száma:", "1000");
+        if (input == null) return;
+
+        try {
+            long generations = Long.parseLong(input.trim());
+            if (generations < 1) {
+                throw new NumberFormatException();
+            }
+            controller.stopSimulation();
+            ProgressMonitor monitor = new ProgressMonitor(this, "Ugrás " + generations + " generációval", null, 0, 100);
+            jumpWorker = new JumpWorker(controller, generations, monitor);
+            jumpWorker.execute();
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Hibás számformátum!", "Hiba", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Háttérszálon futó ugrás. A Mégse gomb megszakítja a szálat; a vezérlő ekkor a legutóbbi
+     * teljes lépés után megáll, így a rács és a generációszám összhangban marad.
+     */
+    private class JumpWorker extends SwingWorker<Long, Void> {
+        private final GameController target;
+        private final long generations;
+        private final ProgressMonitor monitor;
+        private final Timer cancelPoll;
+
+        JumpWorker(GameController target, long generations, ProgressMonitor monitor) {
+            this.target = target;
+            this.generations = generations;
+            this.monitor = monitor;
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    monitor.setProgress((Integer) e.getNewValue());
+                }
+            });
+            cancelPoll = new Timer(100, e -> {
+                if (monitor.isCanceled()) {
+                    cancel(true);
+                } else {
+                    monitor.setProgress(getProgress());
+                }
+            });
+            cancelPoll.start();
+        }
+
+        @Override
+        protected Long doInBackground() {
+            return target.jumpGenerations(generations,
+                    done -> setProgress((int) Math.min(100, 100.0 * done / generations)));
+        }
+
+        @Override
+        protected void done() {
+            cancelPoll.stop();
+            monitor.close();
+            jumpWorker = null;
+        }
+    }
+
+    /**
+     * Bekéri, hány szálon fusson a léptetés (alapértelmezés: 1, azaz soros).
+     */
+    private void showThreadCountDialog() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        String input = JOptionPane.showInputDialog(this,
+                "Szálak száma (1-" + cores + "):", String.valueOf(threadCount));
+        if (input == null) return;
+
+        try {
+            int value = Integer.parseInt(input.trim());
+            if (value < 1 || value > cores) {
+                throw new NumberFormatException();
+            }
+            threadCount = value;
+            applyEngineSettings();
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Hibás számformátum!", "Hiba", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Megjeleníti a szabályszerkesztő ablakot (Settings), ahol a túlélési és születési
      * szabályok módosíthatók. Ez a funkció csak Életjáték módban érhető el.
@@ -226,6 +579,9 @@ public class MainFrame extends JFrame {
             
             Settings settingsDialog = new Settings(this, rule);
             settingsDialog.setVisible(true);
+            if (settingsDialog.isSaved()) {
+                controller.setRule(settingsDialog.getRule());
+            }
             
         } else {
             JOptionPane.showMessageDialog(this, "Csak Életjátéknál elérhető!");
@@ -241,7 +597,16 @@ public class MainFrame extends JFrame {
     }
     
     /**
-     * Beállítja a billentyűparancsokat a sebesség vezérléséhez (Fel/Le nyilak)
+     * A cél sebesség kiírása a vezérlőpanelen.
+     */
+    private void updateSpeedLabel() {
+        int speed = controller.getTargetSpeed();
+        speedLabel.setText(speed == GameController.UNLIMITED ? "(korlátlan)" : "(" + speed + " gen/s)");
+    }
+
+    /**
+     * Beállítja a billentyűparancsokat a sebesség vezérléséhez (Fel/Le nyilak):
+     * fokozatonként 1 generáció / másodperctől a korlátlanig.
      */
     private void setupKeyBindings() {
         JRootPane rootPane = this.getRootPane();
@@ -253,6 +618,7 @@ public class MainFrame extends JFrame {
             @Override
             public void actionPerformed(java.awt.event.ActionEvent e) {
                 controller.increaseSpeed();
+                updateSpeedLabel();
             }
         });
 
@@ -263,6 +629,7 @@ public class MainFrame extends JFrame {
             @Override
             public void actionPerformed(java.awt.event.ActionEvent e) {
                 controller.decreaseSpeed();
+                updateSpeedLabel();
             }
         });
     }
@@ -0,0 +1,50 @@
+package view;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR esemény a szimulációs panel minden kirajzolásáról (a zárra várakozással együtt).
+ * Alapból ki van kapcsolva (lásd gameoflife.jfc); ekkor a start null-t ad, nincs foglalás.
+ */
+@Name("gameoflife.Repaint")
+@Label("Kirajzolás")
+@Category({ "Game of Life", "Megjelenítés" })
+@Enabled(false)
+@StackTrace(false)
+final class RepaintEvent extends jdk.jfr.Event {
+
+    @Label("X")
+    int x;
+
+    @Label("Y")
+    int y;
+
+    @Label("Szélesség")
+    int width;
+
+    @Label("Magasság")
+    int height;
+
+    @Label("Cellaméret")
+    int cellSize;
+
+    @Label("Cella / pixel")
+    int cellsPerPixel;
+
+    @Label("Előző kép")
+    boolean stale;
+
+    private static final EventType TYPE = EventType.getEventType(RepaintEvent.class);
+
+    static RepaintEvent start() {
+        if (!TYPE.isEnabled()) return null;
+        RepaintEvent event = new RepaintEvent();
+        event.begin();
+        return event;
+    }
+}
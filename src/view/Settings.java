@@ -11,6 +11,7 @@ public class Settings extends JDialog {
 	private JTextField surviveField;
     private JTextField birthField;
     private boolean saved = false;
+    private GameOfLifeRule result;
 
     public Settings(Frame owner, GameOfLifeRule rule) {
         super(owner, "Szabályok testreszabása", true);
@@ -39,7 +40,10 @@ public class Settings extends JDialog {
 
         saveButton.addActionListener(e -> {
             try {
-                rule.setRulesFromString(surviveField.getText(), birthField.getText());
+                // Új szabály: a futó szimuláció szabályát csak a vezérlő cserélheti (a rács zárja alatt)
+                GameOfLifeRule edited = new GameOfLifeRule();
+                edited.setRulesFromString(surviveField.getText(), birthField.getText());
+                result = edited;
                 saved = true;
                 dispose();
             } catch (Exception ex) {
@@ -56,4 +60,11 @@ public class Settings extends JDialog {
     public boolean isSaved() {
         return saved;
     }
+
+    /**
+     * @return A szerkesztett szabály (csak isSaved() esetén).
+     */
+    public GameOfLifeRule getRule() {
+        return result;
+    }
 }
\ No newline at end of file
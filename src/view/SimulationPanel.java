@@ -1,26 +1,50 @@
 package view;
 
 import controller.GameController;
-import model.CellState;
+import controller.SimulationMetrics;
 import model.Grid;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.Color;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 
 /**
  * A szimulációs rács grafikus megjelenítéséért felelős Swing komponens.
- * Kezeli a kirajzolást és az egérinterakciót.
+ * Kezeli a kirajzolást és az egérinterakciót. A rács a nézőablakon (Viewport) keresztül látszik:
+ * görgővel nagyítható, jobb vagy középső gombos húzással eltolható, és csak a látható cellák rajzolódnak ki.
  */
 public class SimulationPanel extends JPanel {
 
     private static final long serialVersionUID = 1L;
+    // Ennyit vár a kirajzolás egy éppen futó lépésre, utána a régi képet rajzolja, és később újrapróbálja
+    private static final long PAINT_LOCK_TIMEOUT_MS = 10;
+    private static final long PAINT_RETRY_MS = 50;
 	private GameController controller;
-    private int cellSize = 20;
+    private final Viewport viewport = new Viewport();
     private boolean showGridLines = true;
-    private CellState activeDragState = null; 
+    private boolean painting = false;
+    // Jobb vagy középső gombos húzás: a nézőablak eltolása (az utolsó egérpozíció)
+    private Point panAnchor = null;
+    // Az első rajzoláskor a panelnél nagyobb rács a panelhez igazodik
+    private boolean fitPending = true;
+    private final GridRaster raster = new GridRaster();
+    private final DirtyRegions dirtyRegions = new DirtyRegions();
+    // Teljesítménykijelző: fut az időzítője, ha látható
+    private static final int HUD_REFRESH_MS = 250;
+    private static final int HUD_MARGIN = 8;
+    private static final int HUD_PADDING = 6;
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 160);
+    private Timer hudTimer;
+    private final Rectangle hudBounds = new Rectangle(HUD_MARGIN, HUD_MARGIN, 360, 100);
 
     public SimulationPanel(GameController controller) {
         this.controller = controller;
@@ -43,17 +67,24 @@ public class SimulationPanel extends JPanel {
             
             @Override
             public void mouseReleased(MouseEvent e) {
-                activeDragState = null;
+                painting = false;
+                panAnchor = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(-e.getWheelRotation(), e.getX(), e.getY());
             }
         };
 
         addMouseListener(mouseHandler);
         addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
     }
 
     /**
      * A komponens újrarajzolása.
-     * Végigmegy a rácson és minden cellát a megfelelő színű négyzettel jelenít meg.
+     * A vágóterületbe eső cellákat a GridRaster egyetlen képként rajzolja ki, a rácsvonalakkal együtt.
      */
     @Override
     protected void paintComponent(Graphics g) {
@@ -61,74 +92,234 @@ public class SimulationPanel extends JPanel {
         if (controller == null || controller.getGrid() == null) return;
 
         Grid grid = controller.getGrid();
-        int width = grid.getWidth();
-        int height = grid.getHeight();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                CellState state = grid.getCell(x, y);
-                g.setColor(state.getDefaultColor());
-                g.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
-
-                if (showGridLines) {
-                    g.setColor(Color.LIGHT_GRAY);
-                    g.drawRect(x * cellSize, y * cellSize, cellSize, cellSize);
-                }
+        if (fitPending && getWidth() > 0 && getHeight() > 0) {
+            fitPending = false;
+            if (viewport.worldSize(grid.getWidth()) > getWidth() || viewport.worldSize(grid.getHeight()) > getHeight()) {
+                viewport.fit(grid.getWidth(), grid.getHeight(), getWidth(), getHeight());
+                repaint();
+                return;
+            }
+        }
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        RepaintEvent event = RepaintEvent.start();
+        // A rács olvasása alatt a szimulációs szál nem léphet; lassú lépésnél az előző kép marad
+        if (!controller.tryLockGrid(PAINT_LOCK_TIMEOUT_MS)) {
+            raster.paintLast((Graphics2D) g);
+            if (hudTimer != null) {
+                paintHud((Graphics2D) g, controller.getMetrics());
             }
+            repaint(PAINT_RETRY_MS, clip.x, clip.y, clip.width, clip.height);
+            commit(event, clip, true);
+            return;
+        }
+        SimulationMetrics metrics = controller.getMetrics();
+        long start = System.nanoTime();
+        try {
+            raster.paint((Graphics2D) g, grid, clip, viewport, showGridLines);
+        } finally {
+            controller.unlockGrid();
+        }
+        metrics.recordPaint(System.nanoTime() - start);
+        if (hudTimer != null) {
+            paintHud((Graphics2D) g, metrics);
+        }
+        commit(event, clip, false);
+    }
+
+    private void commit(RepaintEvent event, Rectangle clip, boolean stale) {
+        if (event == null || !event.shouldCommit()) return;
+        event.x = clip.x;
+        event.y = clip.y;
+        event.width = clip.width;
+        event.height = clip.height;
+        event.cellSize = viewport.getCellSize();
+        event.cellsPerPixel = viewport.getCellsPerPixel();
+        event.stale = stale;
+        event.commit();
+    }
+
+    /**
+     * A teljesítménykijelző (HUD) be- vagy kikapcsolása. Bekapcsolva negyed másodpercenként
+     * csak a kijelző területe rajzolódik újra.
+     */
+    public void setHudVisible(boolean visible) {
+        if (visible == (hudTimer != null)) return;
+        if (visible) {
+            hudTimer = new Timer(HUD_REFRESH_MS, e -> repaint(hudBounds));
+            hudTimer.start();
+        } else {
+            hudTimer.stop();
+            hudTimer = null;
+        }
+        repaint(hudBounds);
+    }
+
+    public boolean isHudVisible() {
+        return hudTimer != null;
+    }
+
+    /**
+     * A mérőszámok kiírása a bal felső sarokba, félig átlátszó háttéren.
+     */
+    private void paintHud(Graphics2D g, SimulationMetrics metrics) {
+        double allocation = metrics.getAllocatedBytesPerGeneration();
+        String[] lines = {
+            String.format("Generáció: %d  (%.0f gen/s)", controller.getGeneration(), metrics.getGenerationsPerSecond()),
+            String.format("Cellák: %.3g /s", metrics.getCellsPerSecond()),
+            "Lépés p50/p99: " + formatMicros(metrics.getStepP50Micros()) + " / " + formatMicros(metrics.getStepP99Micros()),
+            "Rajzolás p50/p99: " + formatMicros(metrics.getPaintP50Micros()) + " / " + formatMicros(metrics.getPaintP99Micros())
+                + String.format("  (%.0f /s)", metrics.getPaintsPerSecond()),
+            allocation < 0 ? "Foglalás: nem mérhető" : String.format("Foglalás: %.0f B/gen", allocation)
+        };
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        int lineHeight = fm.getHeight();
+        Rectangle previous = new Rectangle(hudBounds);
+        hudBounds.setBounds(HUD_MARGIN, HUD_MARGIN, width + 2 * HUD_PADDING, lines.length * lineHeight + 2 * HUD_PADDING);
+        if (!previous.equals(hudBounds)) {
+            // Méretváltozáskor a régi kijelző maradéka is törlődjön
+            repaint(previous.union(hudBounds));
+        }
+
+        g.setColor(HUD_BACKGROUND);
+        g.fill(hudBounds);
+        g.setColor(Color.WHITE);
+        int y = hudBounds.y + HUD_PADDING + fm.getAscent();
+        for (String line : lines) {
+            g.drawString(line, hudBounds.x + HUD_PADDING, y);
+            y += lineHeight;
+        }
+    }
+
+    private static String formatMicros(double micros) {
+        return micros >= 1000 ? String.format("%.1f ms", micros / 1000) : String.format("%.1f µs", micros);
+    }
+
+    /**
+     * Csak a megadott cellatéglalap újrarajzolását kéri; bármely szálról hívható.
+     * A kérések a következő EDT-körig gyűlnek, majd összevonva, téglalaponként rajzolódnak ki
+     * (a sima repaint a RepaintManagerben egyetlen befoglaló téglalappá olvasztaná őket).
+     */
+    public void repaintCells(int x, int y, int width, int height) {
+        if (dirtyRegions.add(x, y, width, height)) {
+            SwingUtilities.invokeLater(this::paintDirtyRegions);
+        }
+    }
+
+    private void paintDirtyRegions() {
+        for (Rectangle cells : dirtyRegions.take()) {
+            long left = viewport.screenX(cells.x);
+            long top = viewport.screenY(cells.y);
+            // +1 pixel a jobb és alsó szélen húzódó rácsvonal miatt
+            long right = left + viewport.worldSize(cells.width) + 1;
+            long bottom = top + viewport.worldSize(cells.height) + 1;
+            if (right <= 0 || bottom <= 0 || left >= getWidth() || top >= getHeight()) continue;
+            int x = (int) Math.max(0, left);
+            int y = (int) Math.max(0, top);
+            paintImmediately(x, y, (int) Math.min(getWidth(), right) - x, (int) Math.min(getHeight(), bottom) - y);
+        }
+    }
+
+    /**
+     * Nagyítás (steps > 0) vagy kicsinyítés a megadott képernyőpont körül.
+     */
+    public void zoom(int steps, int anchorX, int anchorY) {
+        fitPending = false;
+        viewport.zoom(steps, anchorX, anchorY);
+        clampViewport();
+        repaint();
+    }
+
+    public void zoomIn() {
+        zoom(1, getWidth() / 2, getHeight() / 2);
+    }
+
+    public void zoomOut() {
+        zoom(-1, getWidth() / 2, getHeight() / 2);
+    }
+
+    /**
+     * A teljes rács beigazítása a panelbe.
+     */
+    public void fitToWindow() {
+        if (controller == null) return;
+        fitPending = false;
+        Grid grid = controller.getGrid();
+        viewport.fit(grid.getWidth(), grid.getHeight(), getWidth(), getHeight());
+        repaint();
+    }
+
+    private void clampViewport() {
+        Grid grid = controller != null ? controller.getGrid() : null;
+        // Korlátlan rácson a nézőablak bárhová eltolható
+        if (grid != null && grid.isBounded()) {
+            viewport.clamp(grid.getWidth(), grid.getHeight(), getWidth(), getHeight());
         }
     }
 
     /**
      * Egérkattintás (lenyomás) kezelése.
-     * Eldönti, hogy milyen műveletet kell végezni (Wireworld rajzolás vagy GoL toggle),
-     * és beállítja az activeDragState-et a húzáshoz.
+     * A művelet (Wireworld rajzolás vagy GoL toggle) eldöntése a vezérlőé, a rács zárolása alatt;
+     * az EDT nem olvassa a rácsot. A húzás a kattintás által beírt állapotot festi tovább.
      */
     private void handleMousePress(MouseEvent e) {
         if (controller == null) return;
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            panAnchor = e.getPoint();
+            return;
+        }
         
-        int gridX = e.getX() / cellSize;
-        int gridY = e.getY() / cellSize;
-        Grid grid = controller.getGrid();
-
-        if (isValidCoordinate(gridX, gridY, grid)) {
-            CellState clickedCell = grid.getCell(gridX, gridY);
-
-            if (clickedCell.isWireworld() || clickedCell == CellState.EMPTY) {
-                activeDragState = controller.getSelectedToolState();
-            } else {
-                if (clickedCell == CellState.ALIVE) {
-                    activeDragState = CellState.DEAD;
-                } else {
-                    activeDragState = CellState.ALIVE;
-                }
-            }
+        long cellX = viewport.cellAtX(e.getX());
+        long cellY = viewport.cellAtY(e.getY());
 
-            controller.paintCell(gridX, gridY, activeDragState);
+        if (isValidCoordinate(cellX, cellY, controller.getGrid())) {
+            controller.handleCellClick((int) cellX, (int) cellY);
+            painting = true;
         }
     }
     
     /**
      * Egérhúzás kezelése.
-     * A lenyomáskor meghatározott állapotot festi a cellákra.
+     * Bal gombbal a lenyomáskor meghatározott állapotot festi a cellákra, jobb vagy középső gombbal a nézőablakot tolja el.
      */
     private void handleMouseDrag(MouseEvent e) {
-        if (controller == null || activeDragState == null) return;
+        if (controller == null) return;
+        if (panAnchor != null) {
+            fitPending = false;
+            viewport.panBy(e.getX() - panAnchor.x, e.getY() - panAnchor.y);
+            panAnchor = e.getPoint();
+            clampViewport();
+            repaint();
+            return;
+        }
+        if (!painting) return;
 
-        int gridX = e.getX() / cellSize;
-        int gridY = e.getY() / cellSize;
+        long cellX = viewport.cellAtX(e.getX());
+        long cellY = viewport.cellAtY(e.getY());
         
-        if (isValidCoordinate(gridX, gridY, controller.getGrid())) {
-            controller.paintCell(gridX, gridY, activeDragState);
+        if (isValidCoordinate(cellX, cellY, controller.getGrid())) {
+            controller.dragCell((int) cellX, (int) cellY);
         }
     }
     
-    private boolean isValidCoordinate(int x, int y, Grid grid) {
+    private boolean isValidCoordinate(long x, long y, Grid grid) {
+        if (!grid.isBounded()) {
+            return x == (int) x && y == (int) y;
+        }
         return x >= 0 && x < grid.getWidth() && y >= 0 && y < grid.getHeight();
     }
 
     public void setCellSize(int size) {
         if (size > 0) {
-            this.cellSize = size;
+            fitPending = false;
+            viewport.setCellSize(size);
             repaint();
         }
     }
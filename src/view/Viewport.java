@@ -0,0 +1,146 @@
+package view;
+
+/**
+ * A panel nézőablaka: nagyítás és eltolás a rács fölött.
+ *
+ * A nagyítás vagy cellSize pixel cellánként (nagyításnál), vagy cellsPerPixel cella pixelenként
+ * (kicsinyítésnél, ekkor pixelenként egy mintavett cella látszik); a kettő közül legalább az egyik 1.
+ * Az eltolás "világpixelben" értendő: a rács bal felső sarka a (0, 0) világpixel, és a panel
+ * (0, 0) pontja az (originX, originY) világpixelre esik. Minden átváltás egész aritmetikával
+ * történik, így a kirajzolás és az egér ugyanazt a cellát látja egy adott pixelen.
+ */
+final class Viewport {
+
+    // A nagyítás lépcsői (pixel / cella); ez alatt a kicsinyítés 2 hatványai szerint megy
+    private static final int[] CELL_SIZES = { 1, 2, 3, 4, 6, 8, 12, 16, 20, 24, 32, 48, 64 };
+    private static final int MAX_CELLS_PER_PIXEL = 1 << 12;
+
+    private int cellSize = 20;
+    private int cellsPerPixel = 1;
+    private long originX;
+    private long originY;
+
+    int getCellSize() { return cellSize; }
+    int getCellsPerPixel() { return cellsPerPixel; }
+    long getOriginX() { return originX; }
+    long getOriginY() { return originY; }
+
+    void setCellSize(int size) {
+        cellSize = Math.max(1, size);
+        cellsPerPixel = 1;
+    }
+
+    /**
+     * A panel x pixelén látható cella oszlopa (a rácson kívül is értelmezett).
+     */
+    long cellAtX(int screenX) {
+        return worldToCell(originX + screenX);
+    }
+
+    long cellAtY(int screenY) {
+        return worldToCell(originY + screenY);
+    }
+
+    long worldToCell(long world) {
+        return cellsPerPixel > 1 ? world * cellsPerPixel : Math.floorDiv(world, cellSize);
+    }
+
+    /**
+     * A cella első (bal/felső) világpixele.
+     */
+    long cellToWorld(long cell) {
+        return cellsPerPixel > 1 ? Math.floorDiv(cell, cellsPerPixel) : cell * cellSize;
+    }
+
+    /**
+     * Ennyi cella ennyi világpixelt foglal (kicsinyítésnél felfelé kerekítve).
+     */
+    long worldSize(long cells) {
+        return cellsPerPixel > 1 ? Math.floorDiv(cells + cellsPerPixel - 1, cellsPerPixel) : cells * cellSize;
+    }
+
+    /**
+     * A cella első pixelének képernyő-koordinátája.
+     */
+    long screenX(long cell) {
+        return cellToWorld(cell) - originX;
+    }
+
+    long screenY(long cell) {
+        return cellToWorld(cell) - originY;
+    }
+
+    void panBy(int dx, int dy) {
+        originX -= dx;
+        originY -= dy;
+    }
+
+    /**
+     * Egy lépcsővel nagyít (steps > 0) vagy kicsinyít (steps < 0) úgy, hogy az (anchorX, anchorY)
+     * képernyőpont alatti cella a helyén maradjon.
+     */
+    void zoom(int steps, int anchorX, int anchorY) {
+        double cellX = (originX + anchorX) * cellsPerPixel / (double) cellSize;
+        double cellY = (originY + anchorY) * cellsPerPixel / (double) cellSize;
+        for (int i = 0; i < Math.abs(steps); i++) {
+            if (steps > 0) zoomInOnce(); else zoomOutOnce();
+        }
+        originX = Math.round(cellX * cellSize / cellsPerPixel) - anchorX;
+        originY = Math.round(cellY * cellSize / cellsPerPixel) - anchorY;
+    }
+
+    private void zoomInOnce() {
+        if (cellsPerPixel > 1) {
+            cellsPerPixel /= 2;
+            return;
+        }
+        for (int size : CELL_SIZES) {
+            if (size > cellSize) {
+                cellSize = size;
+                return;
+            }
+        }
+    }
+
+    private void zoomOutOnce() {
+        if (cellSize > 1) {
+            int smaller = 1;
+            for (int size : CELL_SIZES) {
+                if (size < cellSize) smaller = size;
+            }
+            cellSize = smaller;
+        } else if (cellsPerPixel < MAX_CELLS_PER_PIXEL) {
+            cellsPerPixel *= 2;
+        }
+    }
+
+    /**
+     * A legnagyobb olyan lépcső, amelynél a teljes rács kifér a panelbe; a rács középre kerül.
+     */
+    void fit(int gridWidth, int gridHeight, int viewWidth, int viewHeight) {
+        if (viewWidth <= 0 || viewHeight <= 0) return;
+        cellSize = 1;
+        cellsPerPixel = 1;
+        for (int size : CELL_SIZES) {
+            if ((long) gridWidth * size <= viewWidth && (long) gridHeight * size <= viewHeight) {
+                cellSize = size;
+            }
+        }
+        while (cellsPerPixel < MAX_CELLS_PER_PIXEL
+                && ((long) gridWidth > (long) viewWidth * cellsPerPixel
+                    || (long) gridHeight > (long) viewHeight * cellsPerPixel)) {
+            cellsPerPixel *= 2;
+        }
+        originX = -(viewWidth - worldSize(gridWidth)) / 2;
+        originY = -(viewHeight - worldSize(gridHeight)) / 2;
+    }
+
+    /**
+     * Az eltolás korlátozása úgy, hogy a rácsból mindig látszódjon legalább egy sáv.
+     */
+    void clamp(int gridWidth, int gridHeight, int viewWidth, int viewHeight) {
+        int margin = Math.min(64, Math.max(1, Math.min(viewWidth, viewHeight) / 4));
+        originX = Math.max(margin - viewWidth, Math.min(originX, worldSize(gridWidth) - margin));
+        originY = Math.max(margin - viewHeight, Math.min(originY, worldSize(gridHeight) - margin));
+    }
+}